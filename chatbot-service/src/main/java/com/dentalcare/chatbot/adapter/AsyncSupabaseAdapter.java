@@ -0,0 +1,70 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.dto.AppointmentInput;
+import com.dentalcare.chatbot.dto.PatientInput;
+import com.dentalcare.chatbot.model.Appointment;
+import com.dentalcare.chatbot.model.Dentist;
+import com.dentalcare.chatbot.model.Patient;
+import com.dentalcare.chatbot.model.TimeSlot;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link SupabaseAdapter}.
+ *
+ * Every method returns immediately; the returned future completes when the
+ * PostgREST response arrives. Failures complete the future exceptionally
+ * with a {@link com.dentalcare.chatbot.exception.SupabaseException}.
+ * The wait for the response only holds no platform thread when virtual
+ * threads are enabled ({@code spring.threads.virtual.enabled}).
+ *
+ * {@link SupabaseAdapter} remains the blocking API for existing callers.
+ */
+public interface AsyncSupabaseAdapter {
+
+    /**
+     * Retrieves dentists by specialization, ordered by rating descending.
+     *
+     * @param specialization The dental specialization to filter by
+     * @return Future of dentists (max 3) matching the specialization
+     */
+    CompletableFuture<List<Dentist>> getDentistsBySpecialization(String specialization);
+
+    /**
+     * Creates or updates a patient record, using email as unique key.
+     *
+     * @param input Patient data
+     * @return Future of the created or updated patient record
+     */
+    CompletableFuture<Patient> upsertPatient(PatientInput input);
+
+    /**
+     * Creates a new appointment, checking for duplicates using the idempotency key.
+     *
+     * @param input Appointment data
+     * @return Future of the created (or previously created) appointment
+     */
+    CompletableFuture<Appointment> createAppointment(AppointmentInput input);
+
+    /**
+     * Retrieves available time slots for a dentist.
+     *
+     * @param dentistId The dentist's ID
+     * @param startDate Starting date for slot search
+     * @param days Number of days to search forward
+     * @return Future of available time slots
+     */
+    CompletableFuture<List<TimeSlot>> getAvailableSlots(UUID dentistId, LocalDate startDate, int days);
+
+    /**
+     * Finds an appointment by idempotency key.
+     *
+     * @param key The idempotency key
+     * @return Future of an Optional containing the appointment if found
+     */
+    CompletableFuture<Optional<Appointment>> findAppointmentByIdempotencyKey(String key);
+}
@@ -0,0 +1,110 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.dto.AppointmentInput;
+import com.dentalcare.chatbot.exception.SupabaseException;
+import com.dentalcare.chatbot.dto.PatientInput;
+import com.dentalcare.chatbot.model.Appointment;
+import com.dentalcare.chatbot.model.Dentist;
+import com.dentalcare.chatbot.model.Patient;
+import com.dentalcare.chatbot.model.TimeSlot;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of AsyncSupabaseAdapter on top of SupabaseAdapter.
+ *
+ * Each call runs the blocking adapter on the Supabase executor, so both
+ * APIs share one implementation: the pooled HTTP client, the dentist,
+ * schedule, patient and idempotency caches, and the circuit breaker and
+ * bulkheads. The caller's thread never waits.
+ *
+ * Waiting on the network is only non-blocking with virtual threads
+ * ({@code spring.threads.virtual.enabled}): each call runs on its own
+ * virtual thread, which releases its carrier while the response is pending.
+ * Without them, each in-flight call blocks one thread of the bounded
+ * platform pool (see ExecutionConfig), and calls beyond the pool and its
+ * queue fail fast with a SupabaseException.
+ *
+ * - Server-side failures are retried with backoff scheduled on a timer
+ *   (SupabaseResilience), so no thread sleeps between attempts; rejected
+ *   calls are not retried
+ * - Every failure, including request serialization errors, completes the
+ *   future exceptionally; nothing is thrown from the calling method
+ */
+@Slf4j
+@Component
+public class AsyncSupabaseAdapterImpl implements AsyncSupabaseAdapter {
+
+    @Autowired
+    private SupabaseAdapter supabaseAdapter;
+
+    @Autowired
+    @Qualifier("supabaseExecutor")
+    private ExecutorService supabaseExecutor;
+
+    @Autowired
+    private SupabaseResilience resilience;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @PostConstruct
+    public void init() {
+        if (!virtualThreads) {
+            log.warn("Virtual threads are off; async Supabase calls block a platform thread each while in flight");
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Dentist>> getDentistsBySpecialization(String specialization) {
+        return submit(() -> supabaseAdapter.getDentistsBySpecialization(specialization));
+    }
+
+    @Override
+    public CompletableFuture<Patient> upsertPatient(PatientInput input) {
+        return submit(() -> supabaseAdapter.upsertPatient(input));
+    }
+
+    @Override
+    public CompletableFuture<Appointment> createAppointment(AppointmentInput input) {
+        return submit(() -> supabaseAdapter.createAppointment(input));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Appointment>> findAppointmentByIdempotencyKey(String key) {
+        return submit(() -> supabaseAdapter.findAppointmentByIdempotencyKey(key));
+    }
+
+    @Override
+    public CompletableFuture<List<TimeSlot>> getAvailableSlots(UUID dentistId, LocalDate startDate, int days) {
+        return submit(() -> supabaseAdapter.getAvailableSlots(dentistId, startDate, days));
+    }
+
+    /**
+     * Runs the blocking call on the Supabase executor, retrying server-side
+     * failures. Failures complete the future with the adapter's SupabaseException.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return resilience.retryAsync(() -> {
+            try {
+                return CompletableFuture.supplyAsync(call, supabaseExecutor);
+            } catch (RejectedExecutionException e) {
+                log.warn("Supabase executor is full, rejecting call");
+                return CompletableFuture.failedFuture(new SupabaseException("Too many Supabase calls in flight", e));
+            }
+        });
+    }
+}
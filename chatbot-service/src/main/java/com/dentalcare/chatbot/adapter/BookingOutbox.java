@@ -0,0 +1,666 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.dto.AppointmentInput;
+import com.dentalcare.chatbot.exception.ChatbotException;
+import com.dentalcare.chatbot.exception.SupabaseException;
+import com.dentalcare.chatbot.model.Appointment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable, file-backed outbox in front of {@link SupabaseAdapter#createAppointment}.
+ *
+ * {@link #submit} appends the booking to a local journal and returns a
+ * provisional appointment as soon as the record is fsynced. A single writer
+ * thread group-commits all records queued at that moment with one fsync.
+ * A scheduled drainer then sends pending bookings to Supabase in batches:
+ * - ordered per dentist (a dentist's later bookings wait for earlier ones)
+ * - keyed on the idempotency key, so re-sends after a crash are harmless
+ * - only dropped when Supabase rejects the data itself (400, 409, 422);
+ *   auth, timeout, rate-limit and server failures are retried with
+ *   exponential backoff up to {@code chatbot.outbox.max-backoff}
+ *
+ * A dropped booking was already confirmed provisionally, so it is appended
+ * to {@code rejected.log} next to the journal and can be looked up by its
+ * idempotency key with {@link #findRejected}.
+ *
+ * If submit gives up waiting for the fsync, the booking is only failed if
+ * the writer has not taken it yet; it is then never written. Otherwise
+ * submit waits for the write, so a booking reported as failed is never
+ * delivered later under a key the caller no longer knows.
+ *
+ * On startup the journal is replayed and undelivered bookings are drained
+ * again. The journal is truncated whenever nothing is pending.
+ *
+ * Activated with {@code chatbot.outbox.enabled=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "chatbot.outbox", name = "enabled", havingValue = "true")
+public class BookingOutbox {
+
+    private static final String PENDING = "PENDING";
+    private static final String DELIVERED = "DELIVERED";
+    private static final String REJECTED = "REJECTED";
+
+    /**
+     * Statuses meaning the booking itself is invalid, so retrying cannot help
+     */
+    private static final Set<Integer> REJECTED_STATUSES = Set.of(400, 409, 422);
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+
+    @Autowired
+    private SupabaseAdapter supabaseAdapter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatbot.outbox.directory:./data/outbox}")
+    private Path directory;
+
+    @Value("${chatbot.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${chatbot.outbox.commit-timeout:2s}")
+    private Duration commitTimeout;
+
+    @Value("${chatbot.outbox.compact-threshold-bytes:1048576}")
+    private long compactThresholdBytes;
+
+    @Value("${chatbot.outbox.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    private final BlockingQueue<JournalWrite> writeQueue = new LinkedBlockingQueue<>();
+
+    /**
+     * Undelivered bookings per dentist, oldest first. Guarded by {@code this}.
+     */
+    private final Map<UUID, Deque<JournalRecord>> pendingByDentist = new LinkedHashMap<>();
+
+    /**
+     * Undelivered bookings by idempotency key. A key is reserved before its
+     * record is queued for writing and completes once the record is durable,
+     * so concurrent duplicates wait for the first and compaction never
+     * truncates under a queued booking.
+     */
+    private final Map<String, CompletableFuture<JournalRecord>> pendingByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Bookings Supabase rejected, by idempotency key; also in rejected.log
+     */
+    private final Map<String, RejectedBooking> rejectedByKey = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private FileChannel journal;
+
+    private FileChannel rejectedLog;
+
+    private Thread writer;
+
+    private volatile boolean running = true;
+
+    private Counter deliveredCounter;
+
+    private Counter rejectedCounter;
+
+    /**
+     * Current retry delay after a failed delivery; zero while deliveries succeed.
+     * Only touched by the drainer.
+     */
+    private Duration backoff = Duration.ZERO;
+
+    private long retryAtNanos;
+
+    /**
+     * Replays the journal and starts the group-commit writer.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        Path journalFile = directory.resolve("bookings.log");
+
+        Path rejectedFile = directory.resolve("rejected.log");
+
+        recover(journalFile);
+        loadRejected(rejectedFile);
+
+        journal = FileChannel.open(journalFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        rejectedLog = FileChannel.open(rejectedFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        deliveredCounter = meterRegistry.counter("chatbot.outbox.delivered");
+        rejectedCounter = meterRegistry.counter("chatbot.outbox.rejected");
+        meterRegistry.gauge("chatbot.outbox.pending", pendingByKey, Map::size);
+
+        writer = new Thread(this::writeLoop, "booking-outbox-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        log.info("Booking outbox initialized at {} with {} pending bookings", journalFile, pendingByKey.size());
+    }
+
+    /**
+     * Records a booking durably and returns a provisional appointment.
+     * The appointment is delivered to Supabase asynchronously.
+     *
+     * @param input Appointment data; an idempotency key is generated if missing
+     * @return Provisional appointment with status "pending" and a provisional booking reference
+     */
+    public Appointment submit(AppointmentInput input) {
+        if (input.getIdempotencyKey() == null) {
+            input.setIdempotencyKey(UUID.randomUUID().toString());
+        }
+
+        CompletableFuture<JournalRecord> reservation = new CompletableFuture<>();
+        CompletableFuture<JournalRecord> existing = pendingByKey.putIfAbsent(input.getIdempotencyKey(), reservation);
+        if (existing != null) {
+            // Same key submitted concurrently or earlier; answer once that one is durable
+            JournalRecord pending = await(existing);
+            log.info("Booking already pending in outbox: {}", input.getIdempotencyKey());
+            return provisional(pending.getInput());
+        }
+
+        JournalRecord record = new JournalRecord(PENDING, sequence.incrementAndGet(), input);
+        JournalWrite write = append(record);
+        try {
+            await(write.durable());
+        } catch (ChatbotException e) {
+            if (write.cancel()) {
+                // Never written, so never delivered either
+                release(input.getIdempotencyKey(), reservation, e);
+                throw e;
+            }
+            // The writer already has the record and will deliver it unless the write fails
+            try {
+                write.durable().join();
+            } catch (CompletionException failed) {
+                ChatbotException error = new ChatbotException("Unable to record booking", failed.getCause());
+                release(input.getIdempotencyKey(), reservation, error);
+                throw error;
+            }
+            log.warn("Booking recorded in outbox after the commit timeout: {}", input.getIdempotencyKey());
+        }
+        reservation.complete(record);
+
+        log.info("Booking recorded in outbox: {}", input.getIdempotencyKey());
+        return provisional(input);
+    }
+
+    private void release(String key, CompletableFuture<JournalRecord> reservation, ChatbotException e) {
+        pendingByKey.remove(key, reservation);
+        reservation.completeExceptionally(e);
+    }
+
+    /**
+     * Looks up a booking that was confirmed provisionally but that Supabase
+     * rejected, so the patient can be told.
+     *
+     * @param idempotencyKey The booking's idempotency key
+     * @return The rejected booking, or empty if it was not rejected
+     */
+    public Optional<RejectedBooking> findRejected(String idempotencyKey) {
+        return Optional.ofNullable(rejectedByKey.get(idempotencyKey));
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatbotException("Interrupted while recording booking", e);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Failed to record booking in outbox", e);
+            throw new ChatbotException("Unable to record booking", e);
+        }
+    }
+
+    /**
+     * Sends pending bookings to Supabase in one batch.
+     * Each dentist's bookings are sent oldest first.
+     */
+    @Scheduled(fixedDelayString = "${chatbot.outbox.drain-interval-ms:250}")
+    public void drain() {
+        if (!backoff.isZero() && System.nanoTime() - retryAtNanos < 0) {
+            return;
+        }
+        List<JournalRecord> batch = nextBatch();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            supabaseAdapter.createAppointments(batch.stream().map(JournalRecord::getInput).toList());
+            batch.forEach(record -> acknowledge(record, DELIVERED));
+            backoff = Duration.ZERO;
+            log.info("Delivered {} bookings from outbox", batch.size());
+        } catch (SupabaseException e) {
+            if (isRejected(e)) {
+                // A row was rejected; deliver one by one to isolate it
+                deliverIndividually(batch);
+            } else {
+                retryLater(e);
+            }
+        }
+    }
+
+    /**
+     * Delivers a batch one booking at a time. Bookings whose data Supabase
+     * rejects are marked rejected; on other errors the dentist's remaining
+     * bookings are held back to preserve their order.
+     */
+    private void deliverIndividually(List<JournalRecord> batch) {
+        Set<UUID> blocked = new HashSet<>();
+        SupabaseException failure = null;
+        for (JournalRecord record : batch) {
+            UUID dentistId = record.getInput().getDentistId();
+            if (blocked.contains(dentistId)) {
+                continue;
+            }
+            try {
+                supabaseAdapter.createAppointment(record.getInput());
+                acknowledge(record, DELIVERED);
+            } catch (SupabaseException e) {
+                if (isRejected(e)) {
+                    log.error("Booking rejected by Supabase, dropping from outbox: {}",
+                        record.getInput().getIdempotencyKey(), e);
+                    recordRejection(record, e);
+                    acknowledge(record, REJECTED);
+                } else {
+                    log.warn("Outbox delivery failed for dentist {}: {}", dentistId, e.getMessage());
+                    blocked.add(dentistId);
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            retryLater(failure);
+        } else {
+            backoff = Duration.ZERO;
+        }
+    }
+
+    /**
+     * True if Supabase refused the booking's data, as opposed to failing to
+     * accept it right now (401/403 auth, 408 timeout, 429 rate limit, 5xx, I/O).
+     */
+    private static boolean isRejected(SupabaseException e) {
+        return e.getCause() instanceof HttpClientErrorException clientError
+            && REJECTED_STATUSES.contains(clientError.getStatusCode().value());
+    }
+
+    /**
+     * Doubles the retry delay, up to maxBackoff, and holds off the drainer until it passes.
+     */
+    private void retryLater(SupabaseException e) {
+        backoff = backoff.isZero() ? INITIAL_BACKOFF : backoff.multipliedBy(2);
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        retryAtNanos = System.nanoTime() + backoff.toNanos();
+        log.warn("Outbox delivery failed, retrying in {}: {}", backoff, e.getMessage());
+    }
+
+    /**
+     * Takes up to batchSize pending bookings, keeping per-dentist order.
+     */
+    private synchronized List<JournalRecord> nextBatch() {
+        List<JournalRecord> batch = new ArrayList<>();
+        for (Deque<JournalRecord> queue : pendingByDentist.values()) {
+            for (JournalRecord record : queue) {
+                if (batch.size() == batchSize) {
+                    return batch;
+                }
+                batch.add(record);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Keeps a rejected booking for findRejected and appends it to rejected.log.
+     * Runs before the REJECTED outcome is journaled, so a crash in between
+     * re-sends the booking and records it again. Only called by the drainer.
+     */
+    private void recordRejection(JournalRecord record, SupabaseException e) {
+        HttpClientErrorException clientError = (HttpClientErrorException) e.getCause();
+        RejectedBooking rejected = new RejectedBooking(record.getInput(), clientError.getStatusCode().value(),
+            clientError.getResponseBodyAsString(), LocalDateTime.now());
+        rejectedByKey.put(record.getInput().getIdempotencyKey(), rejected);
+        try {
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(rejected) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                rejectedLog.write(line);
+            }
+            rejectedLog.force(false);
+        } catch (IOException ex) {
+            log.error("Failed to write rejected booking {} to rejected.log", record.getInput().getIdempotencyKey(), ex);
+        }
+    }
+
+    /**
+     * Removes a booking from the pending set and journals the outcome.
+     * The outcome record is not awaited: losing it only causes an idempotent re-send.
+     */
+    private void acknowledge(JournalRecord record, String outcome) {
+        synchronized (this) {
+            Deque<JournalRecord> queue = pendingByDentist.get(record.getInput().getDentistId());
+            if (queue != null) {
+                queue.remove(record);
+                if (queue.isEmpty()) {
+                    pendingByDentist.remove(record.getInput().getDentistId());
+                }
+            }
+        }
+        pendingByKey.remove(record.getInput().getIdempotencyKey());
+        (DELIVERED.equals(outcome) ? deliveredCounter : rejectedCounter).increment();
+        append(new JournalRecord(outcome, record.getSeq(), null));
+    }
+
+    /**
+     * Makes a durable booking visible to the drainer. Normally its key is
+     * already reserved by submit; after recovery, or when submit gave up
+     * waiting, the key is registered here.
+     */
+    private synchronized void addPending(JournalRecord record) {
+        pendingByDentist.computeIfAbsent(record.getInput().getDentistId(), id -> new ArrayDeque<>()).add(record);
+        pendingByKey.putIfAbsent(record.getInput().getIdempotencyKey(), CompletableFuture.completedFuture(record));
+    }
+
+    private JournalWrite append(JournalRecord record) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+            JournalWrite write = new JournalWrite(record, line, new CompletableFuture<>(), new AtomicBoolean());
+            writeQueue.add(write);
+            return write;
+        } catch (IOException e) {
+            return new JournalWrite(record, null, CompletableFuture.failedFuture(e), new AtomicBoolean());
+        }
+    }
+
+    /**
+     * Group commit: writes every queued record, then fsyncs once.
+     * Pending records become visible to the drainer only after the fsync.
+     */
+    private void writeLoop() {
+        List<JournalWrite> group = new ArrayList<>();
+        while (running || !writeQueue.isEmpty()) {
+            try {
+                JournalWrite first = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                writeQueue.drainTo(group);
+                // Skip records whose submit gave up before they were taken
+                group.removeIf(write -> !write.take());
+
+                for (JournalWrite write : group) {
+                    ByteBuffer buffer = ByteBuffer.wrap(write.line);
+                    while (buffer.hasRemaining()) {
+                        journal.write(buffer);
+                    }
+                }
+                journal.force(false);
+
+                for (JournalWrite write : group) {
+                    if (PENDING.equals(write.record.getType())) {
+                        addPending(write.record);
+                    }
+                    write.durable.complete(null);
+                }
+                compactIfIdle();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("Failed to write booking outbox journal", e);
+                group.forEach(write -> write.durable.completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Truncates the journal once it has grown and nothing is pending.
+     * Runs on the writer thread, so no append can interleave.
+     */
+    private void compactIfIdle() throws IOException {
+        if (pendingByKey.isEmpty() && writeQueue.isEmpty() && journal.size() > compactThresholdBytes) {
+            journal.truncate(0);
+            journal.force(true);
+            log.debug("Compacted booking outbox journal");
+        }
+    }
+
+    /**
+     * Rebuilds the pending set from the journal. A torn last line from a
+     * crash mid-write is cut off first, so the next record appended starts
+     * on a fresh line instead of being glued onto it.
+     */
+    private void recover(Path journalFile) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        truncateTornTail(journalFile);
+
+        Map<Long, JournalRecord> pending = new TreeMap<>();
+        long maxSeq = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalRecord record;
+                try {
+                    record = objectMapper.readValue(line, JournalRecord.class);
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable outbox journal record: {}", e.getMessage());
+                    continue;
+                }
+                maxSeq = Math.max(maxSeq, record.getSeq());
+                if (PENDING.equals(record.getType())) {
+                    pending.put(record.getSeq(), record);
+                } else {
+                    pending.remove(record.getSeq());
+                }
+            }
+        }
+
+        pending.values().forEach(this::addPending);
+        sequence.set(maxSeq);
+    }
+
+    /**
+     * Reloads the rejected bookings; a later line for the same key wins.
+     */
+    private void loadRejected(Path rejectedFile) throws IOException {
+        if (!Files.exists(rejectedFile)) {
+            return;
+        }
+        truncateTornTail(rejectedFile);
+
+        try (BufferedReader reader = Files.newBufferedReader(rejectedFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    RejectedBooking rejected = objectMapper.readValue(line, RejectedBooking.class);
+                    rejectedByKey.put(rejected.getInput().getIdempotencyKey(), rejected);
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable rejected booking record: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Truncates a log file to just after its last '\n'.
+     */
+    private static void truncateTornTail(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long complete = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            // Scan backwards block by block for the last newline
+            for (long end = size; end > 0 && complete == 0; end -= buffer.capacity()) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                int read = 0;
+                while (buffer.hasRemaining() && read >= 0) {
+                    read = channel.read(buffer, start + buffer.position());
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        complete = start + i + 1;
+                        break;
+                    }
+                }
+            }
+            if (complete < size) {
+                log.warn("Truncating torn tail of {} ({} bytes)", file.getFileName(), size - complete);
+                channel.truncate(complete);
+                channel.force(true);
+            }
+        }
+    }
+
+    private static Appointment provisional(AppointmentInput input) {
+        return Appointment.builder()
+            .patientId(input.getPatientId())
+            .dentistId(input.getDentistId())
+            .date(input.getDate())
+            .time(input.getTime())
+            .status("pending")
+            .symptoms(input.getSymptoms())
+            .causeIdentified(input.getCauseIdentified())
+            .uncertaintyNote(input.getUncertaintyNote())
+            .idempotencyKey(input.getIdempotencyKey())
+            .bookingReference(provisionalReference(input.getIdempotencyKey()))
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+
+    /**
+     * Derives a stable provisional reference from the idempotency key,
+     * e.g. "PRV-1K3Z9QF".
+     */
+    private static String provisionalReference(String idempotencyKey) {
+        return "PRV-" + Long.toString(Integer.toUnsignedLong(idempotencyKey.hashCode()), 36)
+            .toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Stops the writer after flushing queued records.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        writer.join(commitTimeout.toMillis());
+        journal.close();
+        rejectedLog.close();
+    }
+
+    /**
+     * One line of the journal.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class JournalRecord {
+        /**
+         * PENDING, DELIVERED or REJECTED
+         */
+        private String type;
+
+        /**
+         * Sequence number of the booking
+         */
+        private long seq;
+
+        /**
+         * Booking data (PENDING records only)
+         */
+        private AppointmentInput input;
+    }
+
+    /**
+     * A booking Supabase refused after it was confirmed provisionally.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RejectedBooking {
+        /**
+         * Booking data as submitted
+         */
+        private AppointmentInput input;
+
+        /**
+         * HTTP status Supabase answered with (400, 409 or 422)
+         */
+        private int status;
+
+        /**
+         * Supabase's response body, explaining the rejection
+         */
+        private String reason;
+
+        private LocalDateTime rejectedAt;
+    }
+
+    /**
+     * A record queued for the writer. Exactly one of the writer (take) and
+     * a submit that gave up waiting (cancel) claims it.
+     */
+    private record JournalWrite(JournalRecord record, byte[] line, CompletableFuture<Void> durable, AtomicBoolean claimed) {
+
+        boolean take() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        boolean cancel() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.model.Dentist;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of top-rated dentists per specialization.
+ *
+ * Entries older than {@code ttl} are refreshed in the background on the next
+ * access while the current list keeps being served. If the refresh fails
+ * (e.g. Supabase is down) the stale list is served until {@code maxStaleness},
+ * after which the next lookup goes to Supabase synchronously.
+ *
+ * Hit/miss/load counters are published as {@code cache.*} metrics
+ * tagged with {@code cache=supabase.dentists}.
+ */
+@Slf4j
+final class DentistDirectoryCache {
+
+    private final LoadingCache<String, List<Dentist>> cache;
+
+    DentistDirectoryCache(Function<String, List<Dentist>> loader,
+                          Duration ttl,
+                          Duration maxStaleness,
+                          long maxSize,
+                          Executor refreshExecutor,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .refreshAfterWrite(ttl)
+            .expireAfterWrite(maxStaleness)
+            .executor(refreshExecutor)
+            .recordStats()
+            .build(loader::apply);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "supabase.dentists");
+        log.info("Dentist directory cache initialized (ttl={}, maxStaleness={}, maxSize={})",
+            ttl, maxStaleness, maxSize);
+    }
+
+    /**
+     * Returns the cached dentists, loading them synchronously on a cold miss.
+     */
+    List<Dentist> get(String specialization) {
+        return cache.get(specialization);
+    }
+
+    /**
+     * Drops the cached list for a specialization, e.g. after a roster change.
+     */
+    void invalidate(String specialization) {
+        cache.invalidate(specialization);
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+}
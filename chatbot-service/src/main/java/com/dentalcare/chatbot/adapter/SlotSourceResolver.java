@@ -0,0 +1,87 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Remembers where each dentist's availability lives.
+ *
+ * A dentist's slots come either from the JSONB {@code availability} column
+ * or from the normalized {@code dentist_slots} table. Once a lookup has
+ * found out which one is authoritative, later lookups go straight to it.
+ * Known sources are re-probed after {@code reprobeInterval}; dentists with
+ * no availability in either place are negatively cached for the shorter
+ * {@code negativeTtl}.
+ */
+final class SlotSourceResolver {
+
+    enum SlotSource {
+        /**
+         * JSONB availability column on the dentists table
+         */
+        JSONB,
+
+        /**
+         * Normalized dentist_slots table
+         */
+        NORMALIZED,
+
+        /**
+         * Neither source had availability when last probed
+         */
+        NONE
+    }
+
+    private final Cache<UUID, SlotSource> sources;
+
+    SlotSourceResolver(Duration reprobeInterval, Duration negativeTtl, long maxSize, MeterRegistry meterRegistry) {
+        long reprobeNanos = reprobeInterval.toNanos();
+        long negativeNanos = negativeTtl.toNanos();
+
+        this.sources = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<UUID, SlotSource>() {
+                @Override
+                public long expireAfterCreate(UUID dentistId, SlotSource source, long currentTime) {
+                    return source == SlotSource.NONE ? negativeNanos : reprobeNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(UUID dentistId, SlotSource source,
+                                              long currentTime, long currentDuration) {
+                    return expireAfterCreate(dentistId, source, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(UUID dentistId, SlotSource source,
+                                            long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sources, "supabase.slot-source");
+    }
+
+    /**
+     * @return The known source, or null if it has to be probed
+     */
+    SlotSource get(UUID dentistId) {
+        return sources.getIfPresent(dentistId);
+    }
+
+    void record(UUID dentistId, SlotSource source) {
+        sources.put(dentistId, source);
+    }
+
+    void forget(UUID dentistId) {
+        sources.invalidate(dentistId);
+    }
+}
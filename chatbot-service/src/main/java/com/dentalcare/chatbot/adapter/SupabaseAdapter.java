@@ -8,7 +8,9 @@ import com.dentalcare.chatbot.model.Patient;
 import com.dentalcare.chatbot.model.TimeSlot;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,6 +20,9 @@ import java.util.UUID;
  * Provides methods for interacting with Supabase PostgreSQL database
  * via REST API. Implementations should handle retry logic and error handling.
  * 
+ * All methods block the calling thread; see {@link AsyncSupabaseAdapter}
+ * for the non-blocking variant.
+ * 
  * Extension point: Can be implemented with different strategies
  * (REST API, direct JDBC, etc.)
  */
@@ -42,13 +47,24 @@ public interface SupabaseAdapter {
     
     /**
      * Creates a new appointment.
-     * Checks for duplicates using idempotency key.
+     * Checks for duplicates using idempotency key; repeated calls with the
+     * same key return the appointment created by the first call.
      * 
      * @param input Appointment data
      * @return Created appointment record
      */
     Appointment createAppointment(AppointmentInput input);
     
+    /**
+     * Creates several appointments in one request.
+     * Rows whose idempotency key already exists are skipped, so the batch
+     * can be safely re-sent after a failure.
+     * 
+     * @param inputs Appointment data, inserted in the given order
+     * @return Appointments that were newly created by this call
+     */
+    List<Appointment> createAppointments(List<AppointmentInput> inputs);
+    
     /**
      * Retrieves available time slots for a dentist.
      * Supports both JSONB availability field and normalized slots table.
@@ -57,15 +73,30 @@ public interface SupabaseAdapter {
      * @param startDate Starting date for slot search
      * @param days Number of days to search forward
      * @return List of available time slots
+     * @throws com.dentalcare.chatbot.exception.SupabaseException if Supabase cannot be reached
      */
     List<TimeSlot> getAvailableSlots(UUID dentistId, LocalDate startDate, int days);
     
+    /**
+     * Retrieves available time slots for several dentists at once.
+     * Availability for all dentists is fetched with a single request
+     * (plus one for dentists that only use the normalized slots table).
+     * 
+     * @param dentistIds The dentists' IDs
+     * @param startDate Starting date for slot search
+     * @param days Number of days to search forward
+     * @return Available time slots grouped by dentist ID, in the order given
+     * @throws com.dentalcare.chatbot.exception.SupabaseException if Supabase cannot be reached
+     */
+    Map<UUID, List<TimeSlot>> getAvailableSlots(Collection<UUID> dentistIds, LocalDate startDate, int days);
+    
     /**
      * Finds an appointment by idempotency key.
      * Used to prevent duplicate bookings on retries.
      * 
      * @param key The idempotency key
      * @return Optional containing appointment if found
+     * @throws com.dentalcare.chatbot.exception.SupabaseException if the lookup fails
      */
     Optional<Appointment> findAppointmentByIdempotencyKey(String key);
 }
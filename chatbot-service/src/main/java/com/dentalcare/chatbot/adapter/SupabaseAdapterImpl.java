@@ -1,5 +1,7 @@
 package com.dentalcare.chatbot.adapter;
 
+import com.dentalcare.chatbot.adapter.SlotSourceResolver.SlotSource;
+import com.dentalcare.chatbot.adapter.SupabaseResilience.Operation;
 import com.dentalcare.chatbot.dto.AppointmentInput;
 import com.dentalcare.chatbot.dto.PatientInput;
 import com.dentalcare.chatbot.exception.SupabaseException;
@@ -7,28 +9,41 @@ import com.dentalcare.chatbot.model.Appointment;
 import com.dentalcare.chatbot.model.Dentist;
 import com.dentalcare.chatbot.model.Patient;
 import com.dentalcare.chatbot.model.TimeSlot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Implementation of SupabaseAdapter using RestTemplate for HTTP communication.
  * 
  * Handles all database operations via Supabase REST API with:
- * - Automatic retry with exponential backoff
+ * - Pooled keep-alive HTTP connections with hard timeouts
+ * - Read-through dentist directory cache with background refresh
+ * - Circuit breaker and read/write bulkheads (fail fast, no blocking retries)
  * - Error handling and logging
- * - Idempotency support
- * - JSONB availability parsing
+ * - Single-round-trip idempotent appointment creation
+ * - Skipping patient upserts when nothing changed
+ * - JSONB availability compiled once per dentist and cached
+ * - Per-dentist memory of which slot source is authoritative
+ * 
+ * AsyncSupabaseAdapterImpl runs these same methods off the caller's thread.
  */
 @Slf4j
 @Component
@@ -40,49 +55,143 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
     @Value("${supabase.service-role-key}")
     private String serviceRoleKey;
     
+    @Autowired
+    @Qualifier("supabaseRequestFactory")
+    private ClientHttpRequestFactory requestFactory;
+    
+    @Autowired
+    @Qualifier("supabaseExecutor")
+    private ExecutorService supabaseExecutor;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private SupabaseResilience resilience;
+    
+    @Value("${chatbot.dentist-cache.ttl:5m}")
+    private Duration dentistCacheTtl;
+    
+    @Value("${chatbot.dentist-cache.max-staleness:6h}")
+    private Duration dentistCacheMaxStaleness;
+    
+    @Value("${chatbot.dentist-cache.max-size:64}")
+    private long dentistCacheMaxSize;
+    
+    @Value("${chatbot.availability-cache.ttl:10m}")
+    private Duration availabilityCacheTtl;
+    
+    @Value("${chatbot.availability-cache.max-size:1000}")
+    private long availabilityCacheMaxSize;
+    
+    @Value("${chatbot.availability-cache.source-reprobe-interval:1h}")
+    private Duration slotSourceReprobeInterval;
+    
+    @Value("${chatbot.availability-cache.no-availability-ttl:2m}")
+    private Duration slotSourceNegativeTtl;
+    
+    @Value("${chatbot.idempotency-cache.ttl:10m}")
+    private Duration idempotencyCacheTtl;
+    
+    @Value("${chatbot.idempotency-cache.max-size:10000}")
+    private long idempotencyCacheMaxSize;
+    
+    @Value("${chatbot.patient-cache.ttl:30m}")
+    private Duration patientCacheTtl;
+    
+    @Value("${chatbot.patient-cache.max-size:10000}")
+    private long patientCacheMaxSize;
+    
     private RestTemplate restTemplate;
     
+    private DentistDirectoryCache dentistCache;
+    
+    private Cache<UUID, WeeklySchedule> scheduleCache;
+    
+    private SlotSourceResolver slotSources;
+    
+    private Cache<String, Appointment> recentAppointments;
+    
+    private Cache<String, Patient> knownPatients;
+    
+    private Counter skippedPatientUpserts;
+    
     /**
      * Initializes RestTemplate with Supabase authentication headers.
      * Service role key is used to bypass RLS policies.
+     * The request factory is configured in SupabaseHttpClientConfig.
      */
     @PostConstruct
     public void init() {
-        restTemplate = new RestTemplate();
+        restTemplate = new RestTemplate(requestFactory);
         restTemplate.setInterceptors(Collections.singletonList((request, body, execution) -> {
             request.getHeaders().set("apikey", serviceRoleKey);
             request.getHeaders().set("Authorization", "Bearer " + serviceRoleKey);
             request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
-            request.getHeaders().set("Prefer", "return=representation");
+            if (!request.getHeaders().containsKey("Prefer")) {
+                request.getHeaders().set("Prefer", "return=representation");
+            }
             return execution.execute(request, body);
         }));
         
+        dentistCache = new DentistDirectoryCache(this::fetchDentistsBySpecialization,
+            dentistCacheTtl, dentistCacheMaxStaleness, dentistCacheMaxSize, supabaseExecutor, meterRegistry);
+        
+        scheduleCache = Caffeine.newBuilder()
+            .maximumSize(availabilityCacheMaxSize)
+            .expireAfterWrite(availabilityCacheTtl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, scheduleCache, "supabase.availability");
+        
+        slotSources = new SlotSourceResolver(slotSourceReprobeInterval, slotSourceNegativeTtl,
+            availabilityCacheMaxSize, meterRegistry);
+        
+        recentAppointments = Caffeine.newBuilder()
+            .maximumSize(idempotencyCacheMaxSize)
+            .expireAfterWrite(idempotencyCacheTtl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recentAppointments, "supabase.idempotency");
+        
+        knownPatients = Caffeine.newBuilder()
+            .maximumSize(patientCacheMaxSize)
+            .expireAfterWrite(patientCacheTtl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownPatients, "supabase.patients");
+        skippedPatientUpserts = meterRegistry.counter("chatbot.supabase.patient-upserts.skipped");
+        
         log.info("SupabaseAdapter initialized with URL: {}", supabaseUrl);
     }
 
     
     /**
-     * Retrieves dentists by specialization with retry logic.
-     * Orders by rating descending and limits to top 3 results.
+     * Retrieves dentists by specialization.
+     * Served from the dentist directory cache; Supabase is only called on a
+     * cold miss or by the background refresh.
      */
     @Override
-    @Retryable(
-        value = {RestClientException.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     public List<Dentist> getDentistsBySpecialization(String specialization) {
+        return dentistCache.get(specialization);
+    }
+    
+    /**
+     * Fetches dentists by specialization from Supabase.
+     * Orders by rating descending and limits to top 3 results.
+     */
+    private List<Dentist> fetchDentistsBySpecialization(String specialization) {
         try {
             String url = String.format("%s/rest/v1/dentists?specialization=eq.%s&order=rating.desc&limit=3",
                 supabaseUrl, specialization);
             
             log.debug("Fetching dentists for specialization: {}", specialization);
             
-            ResponseEntity<Dentist[]> response = restTemplate.getForEntity(url, Dentist[].class);
+            ResponseEntity<Dentist[]> response = get(url, Dentist[].class);
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 log.info("Found {} dentists for specialization: {}", response.getBody().length, specialization);
-                return Arrays.asList(response.getBody());
+                return List.of(response.getBody());
             }
             
             log.warn("No dentists found for specialization: {}", specialization);
@@ -95,16 +204,26 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
     }
     
     /**
-     * Upserts patient record with retry logic.
+     * Upserts patient record.
      * Uses email as unique key for merge-duplicates.
+     * Skips the remote upsert when the patient was upserted recently with the
+     * same name and phone. The cache is keyed by the exact email sent, which
+     * is what the upsert conflicts on; emails differing only in case are
+     * different patients there.
      */
     @Override
-    @Retryable(
-        value = {RestClientException.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     public Patient upsertPatient(PatientInput input) {
+        String emailKey = input.getEmail();
+        
+        Patient known = emailKey != null ? knownPatients.getIfPresent(emailKey) : null;
+        if (known != null
+                && Objects.equals(known.getName(), input.getName())
+                && Objects.equals(known.getPhone(), input.getPhone())) {
+            skippedPatientUpserts.increment();
+            log.debug("Patient unchanged, skipping upsert: {}", known.getId());
+            return known;
+        }
+        
         try {
             String url = supabaseUrl + "/rest/v1/patients";
             
@@ -117,18 +236,16 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
             
             HttpEntity<PatientInput> request = new HttpEntity<>(input, headers);
             
-            ResponseEntity<Patient[]> response = restTemplate.exchange(
-                url, 
-                HttpMethod.POST, 
-                request, 
-                Patient[].class
-            );
+            ResponseEntity<Patient[]> response = post(url, request, Patient[].class);
             
             if (response.getStatusCode().is2xxSuccessful() && 
                 response.getBody() != null && 
                 response.getBody().length > 0) {
                 Patient patient = response.getBody()[0];
                 log.info("Patient upserted successfully: {}", patient.getId());
+                if (emailKey != null) {
+                    knownPatients.put(emailKey, patient);
+                }
                 return patient;
             }
             
@@ -139,51 +256,63 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
             throw new SupabaseException("Unable to save patient", e);
         }
     }
-
     
     /**
-     * Creates appointment with idempotency check and retry logic.
-     * Prevents duplicate bookings by checking idempotency key first.
+     * Creates appointment with idempotency check.
+     * 
+     * A single conditional insert (on_conflict=idempotency_key with
+     * ignore-duplicates) creates the row or does nothing if the key already
+     * exists, so there is no race between check and insert. Only in the
+     * duplicate case is the existing row fetched. Keys created recently by
+     * this node are answered from a local cache without a network call.
      */
     @Override
-    @Retryable(
-        value = {RestClientException.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
     public Appointment createAppointment(AppointmentInput input) {
-        try {
-            // Check for duplicate using idempotency key
-            Optional<Appointment> existing = findAppointmentByIdempotencyKey(input.getIdempotencyKey());
-            if (existing.isPresent()) {
-                log.info("Duplicate appointment detected via idempotency key, returning existing: {}", 
-                    existing.get().getId());
-                return existing.get();
+        String idempotencyKey = input.getIdempotencyKey();
+        
+        if (idempotencyKey != null) {
+            Appointment recent = recentAppointments.getIfPresent(idempotencyKey);
+            if (recent != null) {
+                log.info("Duplicate appointment detected via local idempotency cache, returning existing: {}", 
+                    recent.getId());
+                return recent;
             }
-            
-            String url = supabaseUrl + "/rest/v1/appointments";
+        }
+        
+        try {
+            String url = supabaseUrl + "/rest/v1/appointments?on_conflict=idempotency_key";
             
             log.debug("Creating appointment for patient: {} with dentist: {}", 
                 input.getPatientId(), input.getDentistId());
             
-            HttpEntity<AppointmentInput> request = new HttpEntity<>(input);
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("Prefer", "resolution=ignore-duplicates,return=representation");
+            
+            HttpEntity<AppointmentInput> request = new HttpEntity<>(input, headers);
             
-            ResponseEntity<Appointment[]> response = restTemplate.exchange(
-                url,
-                HttpMethod.POST,
-                request,
-                Appointment[].class
-            );
+            ResponseEntity<Appointment[]> response = post(url, request, Appointment[].class);
             
+            Appointment appointment;
             if (response.getStatusCode().is2xxSuccessful() && 
                 response.getBody() != null && 
                 response.getBody().length > 0) {
-                Appointment appointment = response.getBody()[0];
+                appointment = response.getBody()[0];
                 log.info("Appointment created successfully: {}", appointment.getId());
-                return appointment;
+            } else if (idempotencyKey != null) {
+                // Insert was ignored: the key already exists
+                appointment = findAppointmentByIdempotencyKey(idempotencyKey)
+                    .orElseThrow(() -> new SupabaseException("Failed to create appointment - no response body"));
+                log.info("Duplicate appointment detected via idempotency key, returning existing: {}", 
+                    appointment.getId());
+            } else {
+                throw new SupabaseException("Failed to create appointment - no response body");
             }
             
-            throw new SupabaseException("Failed to create appointment - no response body");
+            if (idempotencyKey != null) {
+                recentAppointments.put(idempotencyKey, appointment);
+            }
+            return appointment;
             
         } catch (RestClientException e) {
             log.error("Failed to create appointment", e);
@@ -191,9 +320,51 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
         }
     }
     
+    /**
+     * Creates several appointments with one conditional bulk insert.
+     * Existing idempotency keys are skipped by PostgREST (ignore-duplicates).
+     */
+    @Override
+    public List<Appointment> createAppointments(List<AppointmentInput> inputs) {
+        if (inputs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        try {
+            String url = supabaseUrl + "/rest/v1/appointments?on_conflict=idempotency_key";
+            
+            log.debug("Creating {} appointments in one request", inputs.size());
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("Prefer", "resolution=ignore-duplicates,return=representation");
+            
+            ResponseEntity<Appointment[]> response = post(url, new HttpEntity<>(inputs, headers), Appointment[].class);
+            
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                return Collections.emptyList();
+            }
+            
+            for (Appointment appointment : response.getBody()) {
+                if (appointment.getIdempotencyKey() != null) {
+                    recentAppointments.put(appointment.getIdempotencyKey(), appointment);
+                }
+            }
+            log.info("Created {} of {} appointments", response.getBody().length, inputs.size());
+            return List.of(response.getBody());
+            
+        } catch (RestClientException e) {
+            log.error("Failed to create {} appointments", inputs.size(), e);
+            throw new SupabaseException("Unable to save appointments", e);
+        }
+    }
+    
     /**
      * Finds appointment by idempotency key.
      * Used to prevent duplicate bookings on retries.
+     * 
+     * @throws SupabaseException if the lookup fails, so callers never
+     *         mistake an error for "not found"
      */
     @Override
     public Optional<Appointment> findAppointmentByIdempotencyKey(String key) {
@@ -201,7 +372,7 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
             String url = String.format("%s/rest/v1/appointments?idempotency_key=eq.%s",
                 supabaseUrl, key);
             
-            ResponseEntity<Appointment[]> response = restTemplate.getForEntity(url, Appointment[].class);
+            ResponseEntity<Appointment[]> response = get(url, Appointment[].class);
             
             if (response.getStatusCode().is2xxSuccessful() && 
                 response.getBody() != null && 
@@ -213,131 +384,248 @@ public class SupabaseAdapterImpl implements SupabaseAdapter {
             
         } catch (RestClientException e) {
             log.error("Failed to check idempotency key: {}", key, e);
-            return Optional.empty();
+            throw new SupabaseException("Unable to check idempotency key", e);
         }
     }
 
     
     /**
      * Retrieves available time slots for a dentist.
-     * Tries JSONB availability field first, falls back to normalized table.
+     * Goes straight to the dentist's known slot source; unknown dentists are
+     * probed (JSONB availability first, then the normalized table) and the
+     * result is remembered by the slot-source resolver.
+     * 
+     * @throws SupabaseException if Supabase cannot be reached
      */
     @Override
     public List<TimeSlot> getAvailableSlots(UUID dentistId, LocalDate startDate, int days) {
+        log.debug("Fetching available slots for dentist: {} from {}", dentistId, startDate);
+        
         try {
-            log.debug("Fetching available slots for dentist: {} from {}", dentistId, startDate);
+            SlotSource source = slotSources.get(dentistId);
             
-            // First, try to get slots from JSONB availability field
-            List<TimeSlot> slots = getSlotsFromJsonbAvailability(dentistId, startDate, days);
+            if (source == SlotSource.NONE) {
+                log.debug("Dentist {} has no availability (cached)", dentistId);
+                return Collections.emptyList();
+            }
+            
+            if (source == SlotSource.NORMALIZED) {
+                return getSlotsFromNormalizedTable(List.of(dentistId), startDate, days).byDentist().get(dentistId);
+            }
             
-            if (!slots.isEmpty()) {
+            WeeklySchedule schedule = scheduleCache.get(dentistId, this::fetchWeeklySchedule);
+            if (!schedule.isEmpty()) {
+                slotSources.record(dentistId, SlotSource.JSONB);
+                List<TimeSlot> slots = schedule.slots(dentistId, startDate, days);
                 log.info("Found {} slots from JSONB availability", slots.size());
                 return slots;
             }
             
-            // Fallback: query normalized dentist_slots table
             log.debug("No JSONB availability found, trying normalized table");
-            return getSlotsFromNormalizedTable(dentistId, startDate, days);
+            NormalizedSlots normalized = getSlotsFromNormalizedTable(List.of(dentistId), startDate, days);
+            List<TimeSlot> slots = normalized.byDentist().get(dentistId);
+            recordProbe(dentistId, slots, normalized.attributed());
+            return slots;
             
-        } catch (Exception e) {
+        } catch (RestClientException e) {
             log.error("Failed to fetch available slots for dentist: {}", dentistId, e);
-            return Collections.emptyList();
+            throw new SupabaseException("Unable to fetch available slots", e);
         }
     }
     
     /**
-     * Retrieves slots from JSONB availability field.
-     * JSONB structure: {"monday": ["09:00", "14:00"], "tuesday": ["10:00"]}
+     * Retrieves available time slots for several dentists.
+     * Uncached schedules are fetched with one id=in.(...) request; dentists
+     * whose slots live in the normalized table (or are still unknown and have
+     * no JSONB availability) share one request to that table.
+     * 
+     * @throws SupabaseException if Supabase cannot be reached
      */
-    private List<TimeSlot> getSlotsFromJsonbAvailability(UUID dentistId, LocalDate startDate, int days) {
+    @Override
+    public Map<UUID, List<TimeSlot>> getAvailableSlots(Collection<UUID> dentistIds, LocalDate startDate, int days) {
+        Map<UUID, List<TimeSlot>> slotsByDentist = new LinkedHashMap<>();
+        if (dentistIds.isEmpty()) {
+            return slotsByDentist;
+        }
+        
+        log.debug("Fetching available slots for {} dentists from {}", dentistIds.size(), startDate);
+        
         try {
-            String url = String.format("%s/rest/v1/dentists?id=eq.%s&select=availability",
-                supabaseUrl, dentistId);
+            List<UUID> jsonbCandidates = new ArrayList<>();
+            List<UUID> normalizedCandidates = new ArrayList<>();
+            List<UUID> probing = new ArrayList<>();
+            
+            for (UUID dentistId : dentistIds) {
+                SlotSource source = slotSources.get(dentistId);
+                slotsByDentist.put(dentistId, Collections.emptyList());
+                if (source == SlotSource.NORMALIZED) {
+                    normalizedCandidates.add(dentistId);
+                } else if (source != SlotSource.NONE) {
+                    jsonbCandidates.add(dentistId);
+                }
+            }
             
-            ResponseEntity<Map[]> response = restTemplate.getForEntity(url, Map[].class);
+            if (!jsonbCandidates.isEmpty()) {
+                Map<UUID, WeeklySchedule> schedules = scheduleCache.getAll(jsonbCandidates, this::fetchWeeklySchedules);
+                for (UUID dentistId : jsonbCandidates) {
+                    WeeklySchedule schedule = schedules.getOrDefault(dentistId, WeeklySchedule.EMPTY);
+                    if (schedule.isEmpty()) {
+                        normalizedCandidates.add(dentistId);
+                        probing.add(dentistId);
+                    } else {
+                        slotSources.record(dentistId, SlotSource.JSONB);
+                        slotsByDentist.put(dentistId, schedule.slots(dentistId, startDate, days));
+                    }
+                }
+            }
             
-            if (response.getStatusCode().is2xxSuccessful() && 
-                response.getBody() != null && 
-                response.getBody().length > 0) {
-                Map<String, Object> dentist = response.getBody()[0];
-                Object availability = dentist.get("availability");
-                
-                if (availability instanceof Map) {
-                    return parseJsonbAvailability((Map<String, Object>) availability, dentistId, startDate, days);
+            if (!normalizedCandidates.isEmpty()) {
+                log.debug("Fetching {} dentists from normalized table", normalizedCandidates.size());
+                NormalizedSlots normalized = getSlotsFromNormalizedTable(normalizedCandidates, startDate, days);
+                slotsByDentist.putAll(normalized.byDentist());
+                for (UUID dentistId : probing) {
+                    recordProbe(dentistId, normalized.byDentist().get(dentistId), normalized.attributed());
                 }
             }
             
-            return Collections.emptyList();
+            return slotsByDentist;
             
-        } catch (Exception e) {
-            log.debug("Could not parse JSONB availability: {}", e.getMessage());
-            return Collections.emptyList();
+        } catch (RestClientException e) {
+            log.error("Failed to fetch available slots for dentists: {}", dentistIds, e);
+            throw new SupabaseException("Unable to fetch available slots", e);
         }
     }
     
     /**
-     * Parses JSONB availability structure into TimeSlot objects.
-     * Converts day-of-week based availability into specific date/time slots.
+     * Fetches and compiles a dentist's JSONB availability.
+     * JSONB structure: {"monday": ["09:00", "14:00"], "tuesday": ["10:00"]}
+     * Failures are thrown (not cached) so the next call retries.
+     */
+    private WeeklySchedule fetchWeeklySchedule(UUID dentistId) {
+        return fetchWeeklySchedules(Set.of(dentistId)).get(dentistId);
+    }
+    
+    /**
+     * Fetches and compiles JSONB availability for several dentists in one request.
+     * Dentists missing from the response are compiled as empty schedules.
      */
-    private List<TimeSlot> parseJsonbAvailability(Map<String, Object> availability, 
-                                                   UUID dentistId, 
-                                                   LocalDate startDate, 
-                                                   int days) {
-        List<TimeSlot> slots = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private Map<UUID, WeeklySchedule> fetchWeeklySchedules(Set<? extends UUID> dentistIds) {
+        String url = dentistIds.size() == 1
+            ? String.format("%s/rest/v1/dentists?id=eq.%s&select=id,availability",
+                supabaseUrl, dentistIds.iterator().next())
+            : String.format("%s/rest/v1/dentists?id=in.(%s)&select=id,availability",
+                supabaseUrl, joinIds(dentistIds));
         
-        // Parse JSONB structure: {"monday": ["09:00", "14:00"], "tuesday": ["10:00"]}
-        for (int i = 0; i < days; i++) {
-            LocalDate date = startDate.plusDays(i);
-            String dayOfWeek = date.getDayOfWeek().toString().toLowerCase();
-            
-            if (availability.containsKey(dayOfWeek)) {
-                Object timesObj = availability.get(dayOfWeek);
-                if (timesObj instanceof List) {
-                    List<String> times = (List<String>) timesObj;
-                    for (String time : times) {
-                        try {
-                            slots.add(TimeSlot.builder()
-                                .dentistId(dentistId)
-                                .date(date)
-                                .time(LocalTime.parse(time))
-                                .isAvailable(true)
-                                .build());
-                        } catch (Exception e) {
-                            log.warn("Could not parse time: {}", time);
-                        }
-                    }
+        ResponseEntity<Map[]> response = get(url, Map[].class);
+        
+        Map<UUID, WeeklySchedule> schedules = new HashMap<>();
+        dentistIds.forEach(id -> schedules.put(id, WeeklySchedule.EMPTY));
+        
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            for (Map<String, Object> row : response.getBody()) {
+                Object availability = row.get("availability");
+                if (row.get("id") != null && availability instanceof Map) {
+                    schedules.put(UUID.fromString(row.get("id").toString()),
+                        WeeklySchedule.compile((Map<String, Object>) availability));
                 }
             }
         }
         
-        return slots;
+        return schedules;
     }
     
     /**
-     * Retrieves slots from normalized dentist_slots table.
-     * Alternative approach when JSONB availability is not used.
+     * Drops the cached weekly schedule and slot source for a dentist.
+     * Call after the dentist's availability has been edited.
+     * 
+     * @param dentistId The dentist's ID
      */
-    private List<TimeSlot> getSlotsFromNormalizedTable(UUID dentistId, LocalDate startDate, int days) {
-        try {
-            LocalDate endDate = startDate.plusDays(days);
-            
-            String url = String.format(
-                "%s/rest/v1/dentist_slots?dentist_id=eq.%s&date=gte.%s&date=lt.%s&is_available=eq.true",
-                supabaseUrl, dentistId, startDate, endDate
-            );
-            
-            ResponseEntity<TimeSlot[]> response = restTemplate.getForEntity(url, TimeSlot[].class);
-            
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                log.info("Found {} slots from normalized table", response.getBody().length);
-                return Arrays.asList(response.getBody());
+    public void invalidateAvailability(UUID dentistId) {
+        scheduleCache.invalidate(dentistId);
+        slotSources.forget(dentistId);
+    }
+    
+    /**
+     * Remembers where a probed dentist's slots live. NONE is only recorded
+     * when the normalized table answered and every row was attributed to a
+     * requested dentist, so a failed or unparseable response never
+     * negatively caches a dentist that has slots.
+     */
+    private void recordProbe(UUID dentistId, List<TimeSlot> slots, boolean attributed) {
+        if (!slots.isEmpty()) {
+            slotSources.record(dentistId, SlotSource.NORMALIZED);
+        } else if (attributed) {
+            slotSources.record(dentistId, SlotSource.NONE);
+        }
+    }
+    
+    /**
+     * Slots read from the normalized table.
+     * 
+     * @param byDentist Slots per requested dentist (empty lists for dentists without rows)
+     * @param attributed Whether the response succeeded and every row belonged to a requested dentist
+     */
+    private record NormalizedSlots(Map<UUID, List<TimeSlot>> byDentist, boolean attributed) {
+    }
+    
+    /**
+     * Retrieves slots for several dentists from the normalized dentist_slots table
+     * in one request, grouped by dentist.
+     */
+    private NormalizedSlots getSlotsFromNormalizedTable(List<UUID> dentistIds, LocalDate startDate, int days) {
+        Map<UUID, List<TimeSlot>> slotsByDentist = new HashMap<>();
+        dentistIds.forEach(id -> slotsByDentist.put(id, new ArrayList<>()));
+        
+        String filter = dentistIds.size() == 1 ? "eq." + dentistIds.get(0) : "in.(" + joinIds(dentistIds) + ")";
+        String url = String.format(
+            "%s/rest/v1/dentist_slots?dentist_id=%s&date=gte.%s&date=lt.%s&is_available=eq.true",
+            supabaseUrl, filter, startDate, startDate.plusDays(days)
+        );
+        
+        ResponseEntity<TimeSlot[]> response = get(url, TimeSlot[].class);
+        
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            return new NormalizedSlots(slotsByDentist, false);
+        }
+        
+        log.info("Found {} slots from normalized table", response.getBody().length);
+        int unattributed = 0;
+        for (TimeSlot slot : response.getBody()) {
+            List<TimeSlot> slots = slotsByDentist.get(slot.getDentistId());
+            if (slots != null) {
+                slots.add(slot);
+            } else {
+                unattributed++;
             }
-            
-            return Collections.emptyList();
-            
-        } catch (RestClientException e) {
-            log.error("Failed to fetch slots from normalized table", e);
-            return Collections.emptyList();
         }
+        if (unattributed > 0) {
+            log.warn("{} normalized slots did not belong to a requested dentist", unattributed);
+        }
+        
+        return new NormalizedSlots(slotsByDentist, unattributed == 0);
+    }
+    
+    /**
+     * GET through the read bulkhead and circuit breaker.
+     */
+    private <T> ResponseEntity<T> get(String url, Class<T> responseType) {
+        return resilience.call(Operation.READ, () -> restTemplate.getForEntity(url, responseType));
+    }
+    
+    /**
+     * POST through the write bulkhead and circuit breaker.
+     */
+    private <T> ResponseEntity<T> post(String url, HttpEntity<?> request, Class<T> responseType) {
+        return resilience.call(Operation.WRITE, () -> restTemplate.exchange(url, HttpMethod.POST, request, responseType));
+    }
+    
+    /**
+     * Formats IDs for a PostgREST in.(...) filter.
+     */
+    private static String joinIds(Collection<? extends UUID> ids) {
+        StringJoiner joiner = new StringJoiner(",");
+        ids.forEach(id -> joiner.add(id.toString()));
+        return joiner.toString();
     }
 }
@@ -0,0 +1,144 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.config.SupabaseResilienceProperties;
+import com.dentalcare.chatbot.exception.SupabaseException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer shared by the Supabase adapters.
+ *
+ * Every remote call passes through:
+ * - a failure-rate circuit breaker, so an outage fails fast instead of
+ *   tying up request threads
+ * - a bulkhead per operation type, so slow reads cannot starve booking
+ *   writes (and vice versa)
+ *
+ * Blocking calls are not retried: a retry would put the request thread to
+ * sleep. AsyncSupabaseAdapterImpl retries its calls with exponential
+ * backoff scheduled on a timer, so no thread waits between attempts.
+ *
+ * Rejections are counted in {@code chatbot.supabase.rejected} (tagged by
+ * reason); breaker state is published by Resilience4j's metrics.
+ */
+@Slf4j
+@Component
+public class SupabaseResilience {
+
+    enum Operation {
+        READ,
+        WRITE
+    }
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    private RetryRegistry retryRegistry;
+
+    @Autowired
+    private SupabaseResilienceProperties properties;
+
+    @Autowired
+    @Qualifier("supabaseRetryScheduler")
+    private ScheduledExecutorService retryScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Bulkhead readBulkhead;
+
+    private Bulkhead writeBulkhead;
+
+    private Retry retry;
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("supabase");
+        readBulkhead = bulkheadRegistry.bulkhead("supabase-read", BulkheadConfig.from(bulkheadRegistry.getDefaultConfig())
+            .maxConcurrentCalls(properties.getMaxConcurrentReads())
+            .build());
+        writeBulkhead = bulkheadRegistry.bulkhead("supabase-write", BulkheadConfig.from(bulkheadRegistry.getDefaultConfig())
+            .maxConcurrentCalls(properties.getMaxConcurrentWrites())
+            .build());
+        retry = retryRegistry.retry("supabase");
+
+        circuitBreaker.getEventPublisher()
+            .onStateTransition(event -> log.warn("Supabase circuit breaker: {}", event.getStateTransition()))
+            .onCallNotPermitted(event -> meterRegistry.counter("chatbot.supabase.rejected", "reason", "circuit_open").increment());
+        readBulkhead.getEventPublisher()
+            .onCallRejected(event -> meterRegistry.counter("chatbot.supabase.rejected", "reason", "bulkhead_read").increment());
+        writeBulkhead.getEventPublisher()
+            .onCallRejected(event -> meterRegistry.counter("chatbot.supabase.rejected", "reason", "bulkhead_write").increment());
+    }
+
+    /**
+     * Runs a blocking Supabase call through the bulkhead and circuit breaker.
+     *
+     * @throws SupabaseException if the call is rejected; other exceptions propagate unchanged
+     */
+    <T> T call(Operation operation, Supplier<T> supplier) {
+        try {
+            return Bulkhead.decorateSupplier(bulkhead(operation),
+                CircuitBreaker.decorateSupplier(circuitBreaker, supplier)).get();
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            throw rejected(e);
+        }
+    }
+
+    /**
+     * Runs a non-blocking call, retrying server-side failures with backoff
+     * scheduled on a timer. Each attempt is expected to go through call()
+     * itself, so the breaker and bulkheads see every attempt once; rejected
+     * attempts are not retried.
+     *
+     * @return Future completed with the result, or with the last attempt's
+     *         exception (unwrapped from CompletionException)
+     */
+    <T> CompletableFuture<T> retryAsync(Supplier<CompletionStage<T>> supplier) {
+        return Retry.decorateCompletionStage(retry, retryScheduler, supplier).get()
+            .toCompletableFuture()
+            .exceptionallyCompose(e -> CompletableFuture.failedFuture(
+                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+    }
+
+    /**
+     * @return Current circuit breaker state (CLOSED, OPEN, HALF_OPEN, ...)
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private Bulkhead bulkhead(Operation operation) {
+        return operation == Operation.WRITE ? writeBulkhead : readBulkhead;
+    }
+
+    private static SupabaseException rejected(Throwable e) {
+        log.warn("Supabase call rejected: {}", e.getMessage());
+        return new SupabaseException("Supabase is temporarily unavailable", e);
+    }
+}
@@ -0,0 +1,170 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.model.TimeSlot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+/**
+ * A dentist's weekly availability compiled from the JSONB availability field.
+ *
+ * JSONB structure: {"monday": ["09:00", "14:00"], "tuesday": ["10:00"]}
+ *
+ * Times are parsed once and stored as sorted minute-of-day values per day
+ * of week. {@link #slots} returns a read-only view that creates TimeSlot
+ * objects only when elements are accessed, so a multi-week search does not
+ * allocate a slot per day up front.
+ */
+@Slf4j
+final class WeeklySchedule {
+
+    static final WeeklySchedule EMPTY = new WeeklySchedule(new short[7][0]);
+
+    private static final short[] NO_TIMES = new short[0];
+
+    private static final String[] DAY_KEYS = new String[7];
+
+    static {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            DAY_KEYS[day.ordinal()] = day.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Sorted minute-of-day values, indexed by DayOfWeek.ordinal()
+     */
+    private final short[][] minutesByDay;
+
+    private final int slotsPerWeek;
+
+    private WeeklySchedule(short[][] minutesByDay) {
+        this.minutesByDay = minutesByDay;
+        int total = 0;
+        for (short[] minutes : minutesByDay) {
+            total += minutes.length;
+        }
+        this.slotsPerWeek = total;
+    }
+
+    /**
+     * Compiles a JSONB availability map. Unparseable times are skipped.
+     *
+     * @param availability Map of lowercase day name to list of "HH:mm" strings
+     * @return Compiled schedule, or {@link #EMPTY} if no valid times were found
+     */
+    static WeeklySchedule compile(Map<String, Object> availability) {
+        if (availability == null || availability.isEmpty()) {
+            return EMPTY;
+        }
+
+        short[][] minutesByDay = new short[7][];
+        boolean any = false;
+
+        for (int day = 0; day < 7; day++) {
+            Object timesObj = availability.get(DAY_KEYS[day]);
+            if (!(timesObj instanceof List<?> times) || times.isEmpty()) {
+                minutesByDay[day] = NO_TIMES;
+                continue;
+            }
+
+            short[] minutes = new short[times.size()];
+            int count = 0;
+            for (Object time : times) {
+                try {
+                    LocalTime parsed = LocalTime.parse(String.valueOf(time));
+                    minutes[count++] = (short) (parsed.getHour() * 60 + parsed.getMinute());
+                } catch (Exception e) {
+                    log.warn("Could not parse time: {}", time);
+                }
+            }
+
+            minutes = Arrays.copyOf(minutes, count);
+            Arrays.sort(minutes);
+            minutesByDay[day] = minutes;
+            any |= count > 0;
+        }
+
+        return any ? new WeeklySchedule(minutesByDay) : EMPTY;
+    }
+
+    boolean isEmpty() {
+        return slotsPerWeek == 0;
+    }
+
+    /**
+     * Expands the schedule into dated slots for the given window.
+     *
+     * @param dentistId Dentist the slots belong to
+     * @param startDate First day of the window
+     * @param days Number of days in the window
+     * @return Read-only, lazily materialized list of available slots
+     */
+    List<TimeSlot> slots(UUID dentistId, LocalDate startDate, int days) {
+        if (isEmpty() || days <= 0) {
+            return List.of();
+        }
+        return new SlotWindow(dentistId, startDate, days);
+    }
+
+    /**
+     * Random-access view over the slots of a date window.
+     *
+     * offsets[k] is the number of slots on the first k days of a week that
+     * starts on startDate's day of week, so any index maps to a
+     * (week, day, time) triple in at most seven steps.
+     */
+    private final class SlotWindow extends AbstractList<TimeSlot> implements RandomAccess {
+
+        private final UUID dentistId;
+        private final LocalDate startDate;
+        private final int firstDay;
+        private final int[] offsets = new int[8];
+        private final int size;
+
+        SlotWindow(UUID dentistId, LocalDate startDate, int days) {
+            this.dentistId = dentistId;
+            this.startDate = startDate;
+            this.firstDay = startDate.getDayOfWeek().ordinal();
+            for (int k = 0; k < 7; k++) {
+                offsets[k + 1] = offsets[k] + minutesByDay[(firstDay + k) % 7].length;
+            }
+            this.size = (days / 7) * slotsPerWeek + offsets[days % 7];
+        }
+
+        @Override
+        public TimeSlot get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+
+            int week = index / slotsPerWeek;
+            int remainder = index % slotsPerWeek;
+            int k = 0;
+            while (offsets[k + 1] <= remainder) {
+                k++;
+            }
+
+            int minute = minutesByDay[(firstDay + k) % 7][remainder - offsets[k]];
+            return TimeSlot.builder()
+                .dentistId(dentistId)
+                .date(startDate.plusDays(week * 7L + k))
+                .time(LocalTime.of(minute / 60, minute % 60))
+                .isAvailable(true)
+                .build();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.dentalcare.chatbot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread execution configuration.
+ *
+ * Virtual-thread mode is opt-in via {@code spring.threads.virtual.enabled}.
+ * When enabled, Spring Boot runs Tomcat request handling and the
+ * {@code @Scheduled} sweeper on virtual threads, and this class switches
+ * the executor used for Supabase calls to one virtual thread per task.
+ *
+ * Without virtual threads, Supabase calls run on a bounded platform-thread
+ * pool ({@code chatbot.supabase-executor.*}); each call holds one of its
+ * threads for the whole round trip, and calls beyond the pool and its
+ * queue are rejected instead of starting more threads.
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+
+    /**
+     * Executor for Supabase I/O (async adapter callbacks, background refreshes).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService supabaseExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                            @Value("${chatbot.supabase-executor.platform-threads:48}") int platformThreads,
+                                            @Value("${chatbot.supabase-executor.queue-capacity:500}") int queueCapacity) {
+        if (virtualThreads) {
+            log.info("Supabase calls will run on virtual threads");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("supabase-vt-", 0).factory());
+        }
+        log.info("Supabase calls will run on up to {} platform threads ({} queued)", platformThreads, queueCapacity);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(platformThreads, platformThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("supabase-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.dentalcare.chatbot.config;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.service.ConversationStateCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Redis templates for the Redis-backed conversation state store.
+ *
+ * Keys are plain strings; values use ConversationStateCodec instead of
+ * JDK serialization.
+ */
+@Configuration
+@Profile("redis")
+public class RedisConfig {
+
+    @Bean
+    public ConversationStateCodec conversationStateCodec(
+            @Value("${chatbot.redis.compression-threshold:256}") int compressionThreshold) {
+        return new ConversationStateCodec(compressionThreshold);
+    }
+
+    @Bean
+    public RedisTemplate<String, ConversationState> conversationStateRedisTemplate(RedisConnectionFactory connectionFactory,
+                                                                                  ConversationStateCodec codec) {
+        RedisTemplate<String, ConversationState> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(codec);
+        template.afterPropertiesSet();
+        return template;
+    }
+}
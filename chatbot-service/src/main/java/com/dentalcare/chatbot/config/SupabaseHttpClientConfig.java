@@ -0,0 +1,98 @@
+package com.dentalcare.chatbot.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+/**
+ * HTTP client configuration for the Supabase adapter.
+ *
+ * Selected with {@code chatbot.http-client.type}:
+ * - pooled (default): Apache HttpClient 5 with keep-alive connection reuse,
+ *   per-route limits and connect/read/pool-acquire timeouts
+ * - simple: JDK HttpURLConnection with connect/read timeouts only
+ *
+ * Pool statistics are published as {@code httpcomponents.httpclient.pool.*}
+ * metrics tagged with {@code httpclient=supabase}.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SupabaseHttpClientProperties.class)
+public class SupabaseHttpClientConfig {
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "chatbot.http-client", name = "type", havingValue = "pooled", matchIfMissing = true)
+    static class PooledClientConfig {
+
+        @Bean(destroyMethod = "close")
+        public PoolingHttpClientConnectionManager supabaseConnectionManager(SupabaseHttpClientProperties properties) {
+            return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeout().toMillis()))
+                    .setSocketTimeout(Timeout.ofMilliseconds(properties.getReadTimeout().toMillis()))
+                    .build())
+                .build();
+        }
+
+        @Bean(destroyMethod = "close")
+        public CloseableHttpClient supabaseHttpClient(PoolingHttpClientConnectionManager supabaseConnectionManager,
+                                                      SupabaseHttpClientProperties properties) {
+            RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(properties.getPoolAcquireTimeout().toMillis()))
+                .setResponseTimeout(Timeout.ofMilliseconds(properties.getReadTimeout().toMillis()))
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(properties.getKeepAlive().toMillis()))
+                .build();
+
+            return HttpClients.custom()
+                .setConnectionManager(supabaseConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(properties.getIdleEviction().toMillis()))
+                .build();
+        }
+
+        @Bean
+        public ClientHttpRequestFactory supabaseRequestFactory(CloseableHttpClient supabaseHttpClient,
+                                                               SupabaseHttpClientProperties properties) {
+            log.info("Using pooled Supabase HTTP client (max {} connections, {} per route)",
+                properties.getMaxConnections(), properties.getMaxConnectionsPerRoute());
+            return new HttpComponentsClientHttpRequestFactory(supabaseHttpClient);
+        }
+
+        @Bean
+        public MeterBinder supabaseConnectionPoolMetrics(PoolingHttpClientConnectionManager supabaseConnectionManager) {
+            return new PoolingHttpClientConnectionManagerMetricsBinder(supabaseConnectionManager, "supabase");
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "chatbot.http-client", name = "type", havingValue = "simple")
+    static class SimpleClientConfig {
+
+        @Bean
+        public ClientHttpRequestFactory supabaseRequestFactory(SupabaseHttpClientProperties properties) {
+            log.info("Using simple (non-pooled) Supabase HTTP client");
+            SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+            factory.setConnectTimeout((int) properties.getConnectTimeout().toMillis());
+            factory.setReadTimeout((int) properties.getReadTimeout().toMillis());
+            return factory;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dentalcare.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * HTTP client settings for Supabase REST calls.
+ *
+ * Bound from {@code chatbot.http-client.*}. The pooled client keeps
+ * TLS connections alive between calls; the simple client opens a new
+ * connection per request and is kept for troubleshooting only.
+ */
+@Data
+@ConfigurationProperties(prefix = "chatbot.http-client")
+public class SupabaseHttpClientProperties {
+
+    /**
+     * Client implementation: "pooled" (Apache HttpClient 5) or "simple" (JDK HttpURLConnection)
+     */
+    private Type type = Type.POOLED;
+
+    /**
+     * Maximum number of pooled connections across all routes
+     */
+    private int maxConnections = 50;
+
+    /**
+     * Maximum number of pooled connections per route (Supabase is a single route)
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    /**
+     * Timeout for establishing a TCP/TLS connection
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Timeout waiting for response data once connected
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Timeout waiting for a free connection from the pool
+     */
+    private Duration poolAcquireTimeout = Duration.ofMillis(500);
+
+    /**
+     * How long an idle connection is kept alive for reuse
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    /**
+     * Idle connections older than this are evicted by a background thread
+     */
+    private Duration idleEviction = Duration.ofSeconds(60);
+
+    public enum Type {
+        POOLED,
+        SIMPLE
+    }
+}
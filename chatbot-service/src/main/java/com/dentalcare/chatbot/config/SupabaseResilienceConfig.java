@@ -0,0 +1,115 @@
+package com.dentalcare.chatbot.config;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Circuit breaker, bulkhead and retry registries for Supabase calls.
+ *
+ * Client errors (4xx) are the caller's fault and neither trip the breaker
+ * nor get retried. Breaker state, call outcomes and bulkhead capacity are
+ * published as {@code resilience4j.*} metrics.
+ */
+@Configuration
+@EnableConfigurationProperties(SupabaseResilienceProperties.class)
+public class SupabaseResilienceConfig {
+
+    @Bean
+    public CircuitBreakerRegistry supabaseCircuitBreakerRegistry(SupabaseResilienceProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+            .slidingWindowSize(properties.getSlidingWindowSize())
+            .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+            .failureRateThreshold(properties.getFailureRateThreshold())
+            .slowCallDurationThreshold(properties.getSlowCallDuration())
+            .waitDurationInOpenState(properties.getOpenStateDuration())
+            .automaticTransitionFromOpenToHalfOpenEnabled(true)
+            .recordException(SupabaseResilienceConfig::isServerSideFailure)
+            .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry supabaseBulkheadRegistry(SupabaseResilienceProperties properties,
+                                                     MeterRegistry meterRegistry) {
+        BulkheadConfig config = BulkheadConfig.custom()
+            .maxWaitDuration(properties.getBulkheadMaxWait())
+            .build();
+
+        BulkheadRegistry registry = BulkheadRegistry.of(config);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public RetryRegistry supabaseRetryRegistry(SupabaseResilienceProperties properties,
+                                               MeterRegistry meterRegistry) {
+        RetryConfig config = RetryConfig.custom()
+            .maxAttempts(properties.getRetryMaxAttempts())
+            .intervalFunction(IntervalFunction.ofExponentialBackoff(properties.getRetryInitialBackoff(), 2))
+            .retryOnException(e -> isServerSideFailure(e) && !isRejection(e))
+            .build();
+
+        RetryRegistry registry = RetryRegistry.of(config);
+        TaggedRetryMetrics.ofRetryRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    /**
+     * Schedules async retries; the retried call itself is non-blocking.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService supabaseRetryScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("supabase-retry-"));
+    }
+
+    /**
+     * True unless the failure is a 4xx response, anywhere in the cause chain.
+     */
+    static boolean isServerSideFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpClientErrorException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True if the breaker, a bulkhead or a full executor refused the call,
+     * anywhere in the cause chain.
+     */
+    static boolean isRejection(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof CallNotPermittedException || t instanceof BulkheadFullException
+                    || t instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
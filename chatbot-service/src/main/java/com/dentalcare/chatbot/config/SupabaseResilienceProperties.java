@@ -0,0 +1,66 @@
+package com.dentalcare.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Resilience settings for Supabase calls.
+ *
+ * Bound from {@code chatbot.resilience.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "chatbot.resilience")
+public class SupabaseResilienceProperties {
+
+    /**
+     * Failure rate (percent) over the sliding window that opens the circuit
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * Number of recent calls the failure rate is computed over
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * Minimum calls in the window before the failure rate is evaluated
+     */
+    private int minimumNumberOfCalls = 10;
+
+    /**
+     * Calls slower than this count as slow
+     */
+    private Duration slowCallDuration = Duration.ofSeconds(3);
+
+    /**
+     * How long the circuit stays open before letting trial calls through
+     */
+    private Duration openStateDuration = Duration.ofSeconds(10);
+
+    /**
+     * Maximum concurrent read calls (dentists, slots, idempotency lookups)
+     */
+    private int maxConcurrentReads = 32;
+
+    /**
+     * Maximum concurrent booking writes (patients, appointments)
+     */
+    private int maxConcurrentWrites = 16;
+
+    /**
+     * How long a call may wait for a bulkhead permit before being rejected
+     */
+    private Duration bulkheadMaxWait = Duration.ZERO;
+
+    /**
+     * Total attempts for non-blocking (async adapter) calls
+     */
+    private int retryMaxAttempts = 3;
+
+    /**
+     * Delay before the first async retry; doubled for each further retry
+     */
+    private Duration retryInitialBackoff = Duration.ofMillis(200);
+}
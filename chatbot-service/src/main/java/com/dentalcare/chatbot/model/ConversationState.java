@@ -1,13 +1,20 @@
 package com.dentalcare.chatbot.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.hypersistence.utils.hibernate.type.json.JsonType;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.hibernate.annotations.Type;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Entity representing the state of a conversation session.
@@ -17,7 +24,7 @@ import java.util.Map;
  */
 @Data
 @Entity
-@Table(name = "conversation_states")
+@Table(name = "conversation_states", indexes = @Index(name = "conversation_states_expires_at_idx", columnList = "expires_at"))
 public class ConversationState {
     
     /**
@@ -60,6 +67,16 @@ public class ConversationState {
     @Column(name = "expires_at", nullable = false)
     private LocalDateTime expiresAt;
     
+    /**
+     * What the database held when this state was loaded or last written.
+     * Lets writers send only the changed collected data keys.
+     * Null for new states and when the stored version is unknown.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Snapshot persisted;
+    
     /**
      * Checks if the session has expired
      * 
@@ -68,4 +85,98 @@ public class ConversationState {
     public boolean isExpired() {
         return LocalDateTime.now().isAfter(expiresAt);
     }
+    
+    /**
+     * Creates a detached copy with its own collected data map
+     * (values themselves are shared)
+     * 
+     * @return copy of this state
+     */
+    public ConversationState copy() {
+        ConversationState copy = new ConversationState();
+        copy.setSessionId(sessionId);
+        copy.setCurrentState(currentState);
+        copy.setCollectedData(collectedData != null ? new HashMap<>(collectedData) : new HashMap<>());
+        copy.setCreatedAt(createdAt);
+        copy.setLastUpdated(lastUpdated);
+        copy.setExpiresAt(expiresAt);
+        copy.setPersisted(persisted);
+        return copy;
+    }
+    
+    /**
+     * Records the current values as the stored version.
+     * Called by JPA after loading and by writers after a successful write.
+     */
+    @PostLoad
+    public void markPersisted() {
+        Map<String, Object> data = new HashMap<>();
+        if (collectedData != null) {
+            collectedData.forEach((key, value) -> data.put(key, deepCopy(value)));
+        }
+        persisted = new Snapshot(currentState, Collections.unmodifiableMap(data), lastUpdated, expiresAt);
+    }
+    
+    /**
+     * Copies nested JSON containers so in-place edits still show up as changes
+     */
+    private static Object deepCopy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new HashMap<>();
+            map.forEach((key, item) -> copy.put(key, deepCopy(item)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(deepCopy(item)));
+            return copy;
+        }
+        return value;
+    }
+    
+    /**
+     * Immutable view of a stored conversation state
+     */
+    public record Snapshot(ConversationStep currentState,
+                           Map<String, Object> collectedData,
+                           LocalDateTime lastUpdated,
+                           LocalDateTime expiresAt) {
+        
+        /**
+         * @return true if step and timestamps match the given state
+         */
+        public boolean sameHeader(ConversationState state) {
+            return currentState == state.getCurrentState()
+                && Objects.equals(lastUpdated, state.getLastUpdated())
+                && Objects.equals(expiresAt, state.getExpiresAt());
+        }
+        
+        /**
+         * @return entries of the given state that are new or differ from this snapshot
+         */
+        public Map<String, Object> changedData(ConversationState state) {
+            Map<String, Object> changed = new HashMap<>();
+            if (state.getCollectedData() != null) {
+                state.getCollectedData().forEach((key, value) -> {
+                    if (!collectedData.containsKey(key) || !Objects.equals(collectedData.get(key), value)) {
+                        changed.put(key, value);
+                    }
+                });
+            }
+            return changed;
+        }
+        
+        /**
+         * @return keys of this snapshot that the given state no longer has
+         */
+        public List<String> removedKeys(ConversationState state) {
+            List<String> removed = new ArrayList<>();
+            for (String key : collectedData.keySet()) {
+                if (state.getCollectedData() == null || !state.getCollectedData().containsKey(key)) {
+                    removed.add(key);
+                }
+            }
+            return removed;
+        }
+    }
 }
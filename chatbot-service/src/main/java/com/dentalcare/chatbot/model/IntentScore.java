@@ -0,0 +1,12 @@
+package com.dentalcare.chatbot.model;
+
+/**
+ * An intent together with how strongly the user's text points to it.
+ *
+ * Scores are only comparable within one detector; higher is stronger.
+ *
+ * @param intent Detected intent
+ * @param score Detector-specific score
+ */
+public record IntentScore(Intent intent, double score) {
+}
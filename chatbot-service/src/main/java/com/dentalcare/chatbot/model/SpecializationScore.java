@@ -0,0 +1,12 @@
+package com.dentalcare.chatbot.model;
+
+/**
+ * A dental specialization together with how well the patient's symptoms fit it.
+ *
+ * Scores are only comparable within one mapper; higher is better.
+ *
+ * @param specialization Specialization code (e.g. "endodontist")
+ * @param score Mapper-specific score
+ */
+public record SpecializationScore(String specialization, double score) {
+}
@@ -1,7 +1,9 @@
 package com.dentalcare.chatbot.model;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -11,13 +13,16 @@ import java.util.UUID;
  * Represents an available time slot for a dentist.
  * 
  * Used to display available appointment times to patients.
+ * Reads rows of the dentist_slots table, whose columns are snake_case.
  */
 @Data
 @Builder
+@Jacksonized
 public class TimeSlot {
     /**
      * Dentist ID this slot belongs to
      */
+    @JsonAlias("dentist_id")
     private UUID dentistId;
     
     /**
@@ -33,5 +38,6 @@ public class TimeSlot {
     /**
      * Whether this slot is available for booking
      */
+    @JsonAlias("is_available")
     private Boolean isAvailable;
 }
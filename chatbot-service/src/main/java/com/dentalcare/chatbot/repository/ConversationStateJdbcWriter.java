@@ -0,0 +1,185 @@
+package com.dentalcare.chatbot.repository;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched JDBC writes for conversation states.
+ *
+ * Bypasses JPA's select-then-merge. Each state is written in the cheapest
+ * form its persisted snapshot allows:
+ * - skipped, when nothing changed since it was loaded or last written
+ * - touched, when only the step or timestamps changed (collected_data is
+ *   not sent)
+ * - patched, when some collected data keys changed: removed keys are
+ *   deleted and changed keys merged into the stored jsonb
+ * - upserted in full, for new states and states without a snapshot
+ *
+ * Each kind is one JDBC batch; all of them commit together.
+ * Note that Postgres still writes a new row version for every UPDATE.
+ * Patching saves serializing and shipping the whole document, and a
+ * touch leaves a TOASTed collected_data value untouched.
+ */
+@Repository
+public class ConversationStateJdbcWriter {
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO conversation_states " +
+        "(session_id, current_state, collected_data, created_at, last_updated, expires_at) " +
+        "VALUES (?, ?, ?::jsonb, ?, ?, ?) " +
+        "ON CONFLICT (session_id) DO UPDATE SET " +
+        "current_state = EXCLUDED.current_state, " +
+        "collected_data = EXCLUDED.collected_data, " +
+        "last_updated = EXCLUDED.last_updated, " +
+        "expires_at = EXCLUDED.expires_at";
+
+    private static final String PATCH_SQL =
+        "UPDATE conversation_states SET " +
+        "current_state = ?, " +
+        "collected_data = (coalesce(collected_data, '{}'::jsonb) - ?::text[]) || ?::jsonb, " +
+        "last_updated = ?, " +
+        "expires_at = ? " +
+        "WHERE session_id = ?";
+
+    private static final String TOUCH_SQL =
+        "UPDATE conversation_states SET " +
+        "current_state = ?, " +
+        "last_updated = ?, " +
+        "expires_at = ? " +
+        "WHERE session_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Writes all given states and records each as persisted.
+     *
+     * @param states The states to write
+     */
+    @Transactional
+    public void writeAll(Collection<ConversationState> states) {
+        List<ConversationState> upserts = new ArrayList<>();
+        List<ConversationState> touches = new ArrayList<>();
+        List<Patch> patches = new ArrayList<>();
+        int skipped = 0;
+
+        for (ConversationState state : states) {
+            ConversationState.Snapshot persisted = state.getPersisted();
+            if (persisted == null) {
+                upserts.add(state);
+                continue;
+            }
+
+            Patch patch = new Patch(state, persisted.changedData(state), persisted.removedKeys(state));
+            if (!patch.changesData()) {
+                if (persisted.sameHeader(state)) {
+                    skipped++;
+                } else {
+                    touches.add(state);
+                }
+            } else {
+                patches.add(patch);
+            }
+        }
+
+        // Rows deleted since they were loaded (e.g. by the expiry sweep) are re-inserted in full
+        collectMissing(touches, batch(TOUCH_SQL, touches, this::bindTouch), upserts);
+        collectMissing(patches.stream().map(Patch::state).toList(), batch(PATCH_SQL, patches, this::bindPatch), upserts);
+        batch(UPSERT_SQL, upserts, this::bindUpsert);
+
+        for (ConversationState state : states) {
+            state.markPersisted();
+        }
+
+        meterRegistry.counter("chatbot.state-store.writes", "mode", "skipped").increment(skipped);
+        meterRegistry.counter("chatbot.state-store.writes", "mode", "touch").increment(touches.size());
+        meterRegistry.counter("chatbot.state-store.writes", "mode", "patch").increment(patches.size());
+        meterRegistry.counter("chatbot.state-store.writes", "mode", "full").increment(upserts.size());
+    }
+
+    private <T> int[][] batch(String sql, List<T> items, ParameterizedPreparedStatementSetter<T> setter) {
+        if (items.isEmpty()) {
+            return new int[0][];
+        }
+        return jdbcTemplate.batchUpdate(sql, items, items.size(), setter);
+    }
+
+    private static void collectMissing(List<ConversationState> states, int[][] counts, List<ConversationState> upserts) {
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    upserts.add(states.get(index));
+                }
+                index++;
+            }
+        }
+    }
+
+    private void bindUpsert(PreparedStatement ps, ConversationState state) throws SQLException {
+        ps.setString(1, state.getSessionId());
+        ps.setString(2, state.getCurrentState().name());
+        ps.setString(3, toJson(state.getSessionId(), state.getCollectedData()));
+        ps.setTimestamp(4, toTimestamp(state.getCreatedAt()));
+        ps.setTimestamp(5, toTimestamp(state.getLastUpdated()));
+        ps.setTimestamp(6, toTimestamp(state.getExpiresAt()));
+    }
+
+    private void bindPatch(PreparedStatement ps, Patch patch) throws SQLException {
+        ConversationState state = patch.state();
+        ps.setString(1, state.getCurrentState().name());
+        ps.setArray(2, ps.getConnection().createArrayOf("text", patch.removed().toArray()));
+        ps.setString(3, toJson(state.getSessionId(), patch.changed()));
+        ps.setTimestamp(4, toTimestamp(state.getLastUpdated()));
+        ps.setTimestamp(5, toTimestamp(state.getExpiresAt()));
+        ps.setString(6, state.getSessionId());
+    }
+
+    private void bindTouch(PreparedStatement ps, ConversationState state) throws SQLException {
+        ps.setString(1, state.getCurrentState().name());
+        ps.setTimestamp(2, toTimestamp(state.getLastUpdated()));
+        ps.setTimestamp(3, toTimestamp(state.getExpiresAt()));
+        ps.setString(4, state.getSessionId());
+    }
+
+    private String toJson(String sessionId, Map<String, Object> data) throws SQLException {
+        try {
+            return objectMapper.writeValueAsString(data != null ? data : Map.of());
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize collected data for session " + sessionId, e);
+        }
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private record Patch(ConversationState state, Map<String, Object> changed, List<String> removed) {
+
+        boolean changesData() {
+            return !changed.isEmpty() || !removed.isEmpty();
+        }
+    }
+}
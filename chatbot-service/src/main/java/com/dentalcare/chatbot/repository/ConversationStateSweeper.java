@@ -0,0 +1,98 @@
+package com.dentalcare.chatbot.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Deletes expired conversation states in bounded chunks.
+ *
+ * - One DELETE per chunk, driven by the expires_at index; no entities
+ *   are loaded
+ * - Rows locked by an in-flight save are skipped and picked up next time
+ * - Only one node sweeps at a time: the sweep holds a Postgres advisory
+ *   lock on its connection, other nodes skip the run
+ *
+ * Called outside a transaction, each chunk commits on its own, so a long
+ * sweep never holds row locks for more than one chunk.
+ */
+@Slf4j
+@Repository
+public class ConversationStateSweeper {
+
+    /**
+     * Advisory lock key shared by all chatbot nodes ("chatbot" in ASCII)
+     */
+    static final long SWEEP_LOCK_KEY = 0x63686174626F74L;
+
+    private static final String DELETE_CHUNK_SQL =
+        "DELETE FROM conversation_states WHERE ctid IN (" +
+        "SELECT ctid FROM conversation_states WHERE expires_at < ? " +
+        "LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Deletes states that expired before the cutoff.
+     *
+     * @param cutoff Expiry cutoff
+     * @param chunkSize Rows per DELETE statement
+     * @param maxChunks Upper bound on statements per sweep
+     * @return Rows deleted, or -1 if another node holds the sweep lock
+     */
+    public long sweep(LocalDateTime cutoff, int chunkSize, int maxChunks) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            if (!tryLock(connection)) {
+                return -1L;
+            }
+            try {
+                return deleteChunks(connection, Timestamp.valueOf(cutoff), chunkSize, maxChunks);
+            } finally {
+                unlock(connection);
+            }
+        });
+    }
+
+    private long deleteChunks(Connection connection, Timestamp cutoff, int chunkSize, int maxChunks) throws SQLException {
+        long deleted = 0;
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_CHUNK_SQL)) {
+            for (int chunk = 0; chunk < maxChunks; chunk++) {
+                delete.setTimestamp(1, cutoff);
+                delete.setInt(2, chunkSize);
+                int rows = delete.executeUpdate();
+                deleted += rows;
+                if (rows < chunkSize) {
+                    return deleted;
+                }
+            }
+        }
+        log.info("Expired session sweep stopped after {} chunks; the rest is left for the next run", maxChunks);
+        return deleted;
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            lock.setLong(1, SWEEP_LOCK_KEY);
+            try (ResultSet result = lock.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement unlock = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            unlock.setLong(1, SWEEP_LOCK_KEY);
+            unlock.execute();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * BK-tree over a fixed vocabulary, for finding the closest term within a
+ * bounded Levenshtein distance.
+ *
+ * Each child edge is labelled with its distance to the parent, so by the
+ * triangle inequality a search only descends into children whose label is
+ * within maxDistance of the query's distance to the parent. With small
+ * bounds (1-2 edits) a query visits a small fraction of the terms.
+ *
+ * Immutable and thread-safe once built.
+ *
+ * @param <T> Value stored with each term
+ */
+final class BkTree<T> {
+
+    /**
+     * A vocabulary term close to the query.
+     *
+     * @param term Matched vocabulary term
+     * @param value Value stored with the term
+     * @param distance Edit distance from the query
+     */
+    record Match<T>(String term, T value, int distance) {
+    }
+
+    private static final class Node<T> {
+        private final String term;
+        private final T value;
+        private Node<T>[] children;
+
+        private Node(String term, T value) {
+            this.term = term;
+            this.value = value;
+        }
+    }
+
+    private final Node<T> root;
+
+    private final int size;
+
+    /**
+     * Builds the tree; terms are inserted in map iteration order, which
+     * breaks ties between equally distant terms.
+     */
+    BkTree(Map<String, T> terms) {
+        Node<T> first = null;
+        for (Map.Entry<String, T> entry : terms.entrySet()) {
+            Node<T> node = new Node<>(entry.getKey(), entry.getValue());
+            if (first == null) {
+                first = node;
+            } else {
+                insert(first, node);
+            }
+        }
+        this.root = first;
+        this.size = terms.size();
+    }
+
+    /**
+     * Finds the closest term within maxDistance edits.
+     *
+     * @return Closest match, or null if none is close enough
+     */
+    Match<T> closest(String query, int maxDistance) {
+        if (root == null) {
+            return null;
+        }
+
+        Node<T> best = null;
+        int bestDistance = maxDistance + 1;
+        Deque<Node<T>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<T> node = pending.pop();
+            int distance = distance(query, node.term);
+            if (distance < bestDistance) {
+                best = node;
+                bestDistance = distance;
+            }
+            if (node.children == null) {
+                continue;
+            }
+            // Shrink the window as better matches are found
+            int from = Math.max(1, distance - Math.min(maxDistance, bestDistance));
+            int to = Math.min(node.children.length - 1, distance + Math.min(maxDistance, bestDistance));
+            for (int edge = to; edge >= from; edge--) {
+                if (node.children[edge] != null) {
+                    pending.push(node.children[edge]);
+                }
+            }
+        }
+        return best != null ? new Match<>(best.term, best.value, bestDistance) : null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Levenshtein distance (insertions, deletions, substitutions)
+     */
+    static int distance(CharSequence a, CharSequence b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void insert(Node<T> parent, Node<T> node) {
+        while (true) {
+            int distance = distance(node.term, parent.term);
+            if (distance == 0) {
+                // Duplicate term; the first one wins
+                return;
+            }
+            if (parent.children == null) {
+                parent.children = (Node<T>[]) new Node[distance + 1];
+            } else if (parent.children.length <= distance) {
+                parent.children = Arrays.copyOf(parent.children, distance + 1);
+            }
+            if (parent.children[distance] == null) {
+                parent.children[distance] = node;
+                return;
+            }
+            parent = parent.children[distance];
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary Redis serializer for ConversationState.
+ *
+ * Layout (version 1):
+ * - 1 byte schema version
+ * - session ID (varint length + UTF-8)
+ * - 1 byte step (ConversationStep ordinal; new steps must be appended)
+ * - 1 byte presence flags, then createdAt / lastUpdated / expiresAt as
+ *   varint epoch seconds + varint nanos (UTC, no zone conversion)
+ * - collectedData: varint entry count, then key + tagged value per entry
+ *
+ * Values are tagged with their type, so they decode to the same Java types
+ * Jackson would produce (Integer when it fits, else Long; Double; Boolean;
+ * List; Map). UUIDs and java.time values keep their type. Strings longer than
+ * the compression threshold are deflated if that makes them smaller; this
+ * costs a few microseconds per string, so the threshold is configurable
+ * (0 disables compression).
+ *
+ * Readers must keep decoding every version they have ever written, so a
+ * rolling deploy can read entries written by the previous release.
+ */
+public class ConversationStateCodec implements RedisSerializer<ConversationState> {
+
+    static final byte VERSION_1 = 1;
+
+    /**
+     * Schema version of the values written by encodeValue. Callers that store
+     * values outside a serialized state must store it with them and pass it
+     * back to decodeValue.
+     */
+    public static final int VALUE_VERSION = VERSION_1;
+
+    /**
+     * Default UTF-8 length above which string values are compressed
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+
+    private static final int HAS_CREATED_AT = 1;
+    private static final int HAS_LAST_UPDATED = 1 << 1;
+    private static final int HAS_EXPIRES_AT = 1 << 2;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_DEFLATED_STRING = 2;
+    private static final byte TAG_TRUE = 3;
+    private static final byte TAG_FALSE = 4;
+    private static final byte TAG_INT = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_LIST = 7;
+    private static final byte TAG_MAP = 8;
+    private static final byte TAG_UUID = 9;
+    private static final byte TAG_DATE = 10;
+    private static final byte TAG_TIME = 11;
+    private static final byte TAG_DATE_TIME = 12;
+
+    private static final ConversationStep[] STEPS = ConversationStep.values();
+
+    /**
+     * zlib streams are expensive to set up (native state), so a few are pooled
+     * and shared by all threads. A ThreadLocal would give every virtual thread
+     * its own stream. Streams beyond the pool size are end()ed after use.
+     */
+    private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final int compressionThreshold;
+
+    public ConversationStateCodec() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * @param compressionThreshold UTF-8 length above which strings are compressed; 0 disables compression
+     */
+    public ConversationStateCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(ConversationState state) throws SerializationException {
+        if (state == null) {
+            return new byte[0];
+        }
+
+        Output out = new Output(128);
+        out.writeByte(VERSION_1);
+        out.writeString(state.getSessionId());
+        out.writeByte(state.getCurrentState().ordinal());
+
+        int flags = (state.getCreatedAt() != null ? HAS_CREATED_AT : 0)
+            | (state.getLastUpdated() != null ? HAS_LAST_UPDATED : 0)
+            | (state.getExpiresAt() != null ? HAS_EXPIRES_AT : 0);
+        out.writeByte(flags);
+        if (state.getCreatedAt() != null) {
+            writeDateTime(out, state.getCreatedAt());
+        }
+        if (state.getLastUpdated() != null) {
+            writeDateTime(out, state.getLastUpdated());
+        }
+        if (state.getExpiresAt() != null) {
+            writeDateTime(out, state.getExpiresAt());
+        }
+
+        Map<String, Object> data = state.getCollectedData() != null ? state.getCollectedData() : Map.of();
+        out.writeVarInt(data.size());
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            out.writeString(entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+
+        return out.toByteArray();
+    }
+
+    @Override
+    public ConversationState deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        Input in = new Input(bytes);
+        int version = in.readByte();
+        if (version != VERSION_1) {
+            throw new SerializationException("Unsupported conversation state schema version: " + version);
+        }
+
+        try {
+            ConversationState state = new ConversationState();
+            state.setSessionId(in.readString());
+
+            int step = in.readByte();
+            if (step >= STEPS.length) {
+                throw new SerializationException("Unknown conversation step ordinal: " + step);
+            }
+            state.setCurrentState(STEPS[step]);
+
+            int flags = in.readByte();
+            if ((flags & HAS_CREATED_AT) != 0) {
+                state.setCreatedAt(readDateTime(in));
+            }
+            if ((flags & HAS_LAST_UPDATED) != 0) {
+                state.setLastUpdated(readDateTime(in));
+            }
+            if ((flags & HAS_EXPIRES_AT) != 0) {
+                state.setExpiresAt(readDateTime(in));
+            }
+
+            int size = in.readVarInt();
+            Map<String, Object> data = new HashMap<>(Math.max(16, size * 2));
+            for (int i = 0; i < size; i++) {
+                data.put(in.readString(), readValue(in));
+            }
+            state.setCollectedData(data);
+            return state;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated conversation state", e);
+        }
+    }
+
+    /**
+     * Encodes a single collected data value.
+     */
+    public byte[] encodeValue(Object value) {
+        Output out = new Output(32);
+        writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a value written by {@link #encodeValue(Object)} of this release.
+     */
+    public Object decodeValue(byte[] bytes) {
+        return decodeValue(bytes, VALUE_VERSION);
+    }
+
+    /**
+     * Decodes a value written by {@link #encodeValue(Object)}.
+     *
+     * @param version VALUE_VERSION of the release that encoded it
+     * @throws SerializationException if this release cannot read that version
+     */
+    public Object decodeValue(byte[] bytes, int version) {
+        if (version != VERSION_1) {
+            throw new SerializationException("Unsupported collected data schema version: " + version);
+        }
+        try {
+            return readValue(new Input(bytes));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated collected data value", e);
+        }
+    }
+
+    private void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String text) {
+            writeText(out, text);
+        } else if (value instanceof Boolean flag) {
+            out.writeByte(flag ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_INT);
+            out.writeVarLong(zigZag(((Number) value).longValue()));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Collection<?> items) {
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(items.size());
+            for (Object item : items) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.writeString(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof UUID uuid) {
+            out.writeByte(TAG_UUID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else if (value instanceof LocalDate date) {
+            out.writeByte(TAG_DATE);
+            out.writeVarLong(zigZag(date.toEpochDay()));
+        } else if (value instanceof LocalTime time) {
+            out.writeByte(TAG_TIME);
+            out.writeVarLong(time.toNanoOfDay());
+        } else if (value instanceof LocalDateTime dateTime) {
+            out.writeByte(TAG_DATE_TIME);
+            writeDateTime(out, dateTime);
+        } else {
+            throw new SerializationException("Unsupported collected data type: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(Input in) {
+        byte tag = (byte) in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return in.readString();
+            case TAG_DEFLATED_STRING:
+                return inflate(in);
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_INT:
+                long number = unZigZag(in.readVarLong());
+                return number == (int) number ? (Object) (int) number : (Object) number;
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case TAG_LIST: {
+                int size = in.readVarInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = in.readVarInt();
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(16, size * 2));
+                for (int i = 0; i < size; i++) {
+                    map.put(in.readString(), readValue(in));
+                }
+                return map;
+            }
+            case TAG_UUID:
+                return new UUID(in.readLong(), in.readLong());
+            case TAG_DATE:
+                return LocalDate.ofEpochDay(unZigZag(in.readVarLong()));
+            case TAG_TIME:
+                return LocalTime.ofNanoOfDay(in.readVarLong());
+            case TAG_DATE_TIME:
+                return readDateTime(in);
+            default:
+                throw new SerializationException("Unknown collected data tag: " + tag);
+        }
+    }
+
+    private void writeText(Output out, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (compressionThreshold > 0 && utf8.length > compressionThreshold) {
+            byte[] deflated = deflate(utf8);
+            if (deflated.length < utf8.length) {
+                out.writeByte(TAG_DEFLATED_STRING);
+                out.writeVarInt(utf8.length);
+                out.writeBlock(deflated);
+                return;
+            }
+        }
+        out.writeByte(TAG_STRING);
+        out.writeBlock(utf8);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+        }
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[input.length];
+            int length = deflater.deflate(buffer);
+            // Not finished means it did not fit in the original size, i.e. no gain
+            return deflater.finished() ? Arrays.copyOf(buffer, length) : input;
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static String inflate(Input in) {
+        int length = in.readVarInt();
+        byte[] deflated = in.readBlock();
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            inflater.setInput(deflated);
+            byte[] utf8 = new byte[length];
+            int read = inflater.inflate(utf8);
+            if (read != length) {
+                throw new SerializationException("Corrupt compressed string");
+            }
+            return new String(utf8, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupt compressed string", e);
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static void writeDateTime(Output out, LocalDateTime time) {
+        out.writeVarLong(zigZag(time.toEpochSecond(ZoneOffset.UTC)));
+        out.writeVarInt(time.getNano());
+    }
+
+    private static LocalDateTime readDateTime(Input in) {
+        long seconds = unZigZag(in.readVarLong());
+        return LocalDateTime.ofEpochSecond(seconds, in.readVarInt(), ZoneOffset.UTC);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable buffer with varint helpers.
+     */
+    private static final class Output {
+
+        private byte[] buffer;
+
+        private int count;
+
+        Output(int size) {
+            buffer = new byte[size];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[count++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[count++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBlock(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBlock(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (count + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() {
+            return bytes[position++] & 0xFF;
+        }
+
+        int readVarInt() {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new SerializationException("Length out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        byte[] readBlock() {
+            int length = readVarInt();
+            if (position + length > bytes.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return result;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (position + length > bytes.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.dentalcare.chatbot.service;
 
 import com.dentalcare.chatbot.model.ConversationState;
 
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -10,11 +11,18 @@ import java.util.Optional;
  * Supports multiple implementations:
  * - Redis-based (fast, in-memory)
  * - Database-based (persistent, reliable)
+ * - Tiered (in-process L1 in front of either of the above)
  * 
  * Extension point: Can be implemented with different storage strategies.
  */
 public interface ConversationStateStore {
     
+    /**
+     * Qualifier of the backing (L2) store implementation.
+     * Decorators such as TieredConversationStateStore inject the backend by it.
+     */
+    String BACKEND = "conversationStateBackend";
+    
     /**
      * Saves conversation state.
      * 
@@ -30,6 +38,19 @@ public interface ConversationStateStore {
      */
     Optional<ConversationState> findBySessionId(String sessionId);
     
+    /**
+     * Finds conversation state with only the given collected data keys loaded.
+     * Saving such a state updates those keys and leaves the others untouched
+     * in stores that support it; the default loads the full state.
+     * 
+     * @param sessionId The session identifier
+     * @param keys Collected data keys the caller needs
+     * @return Optional containing state if found
+     */
+    default Optional<ConversationState> findBySessionId(String sessionId, Collection<String> keys) {
+        return findBySessionId(sessionId);
+    }
+    
     /**
      * Deletes expired conversation states.
      * Should be called periodically to clean up old sessions.
@@ -0,0 +1,172 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Approximate nearest-neighbour index for unit vectors under cosine similarity.
+ *
+ * Random-hyperplane LSH: each of the tables hashes a vector to the signs of
+ * its dot products with {@code bits} random hyperplanes, so similar vectors
+ * tend to share a bucket. A search probes the query's bucket and every
+ * bucket one bit away in each table, then ranks the candidates by exact
+ * cosine similarity.
+ *
+ * Built once from all items; immutable and thread-safe afterwards.
+ *
+ * @param <T> Value stored with each vector
+ */
+final class CosineLshIndex<T> {
+
+    /**
+     * @param value Stored value
+     * @param similarity Cosine similarity to the query
+     */
+    record Neighbor<T>(T value, float similarity) {
+    }
+
+    private final int dimensions;
+
+    private final int tables;
+
+    private final int bits;
+
+    /**
+     * hyperplanes[table * bits + bit] = normal vector
+     */
+    private final float[][] hyperplanes;
+
+    /**
+     * buckets[table][signature] = item ids
+     */
+    private final int[][][] buckets;
+
+    private final float[][] vectors;
+
+    private final List<T> values;
+
+    /**
+     * @param vectors Unit vectors to index
+     * @param values Value of each vector
+     * @param tables Hash tables (more = better recall, more memory)
+     * @param bits Hyperplanes per table (more = smaller buckets)
+     * @param seed Seed for the hyperplanes
+     */
+    CosineLshIndex(List<float[]> vectors, List<T> values, int tables, int bits, long seed) {
+        if (vectors.isEmpty() || vectors.size() != values.size()) {
+            throw new IllegalArgumentException("Need one value per vector and at least one vector");
+        }
+        this.dimensions = vectors.get(0).length;
+        this.tables = tables;
+        this.bits = bits;
+        this.vectors = vectors.toArray(new float[0][]);
+        this.values = List.copyOf(values);
+
+        Random random = new Random(seed);
+        hyperplanes = new float[tables * bits][dimensions];
+        for (float[] hyperplane : hyperplanes) {
+            for (int i = 0; i < dimensions; i++) {
+                hyperplane[i] = (float) random.nextGaussian();
+            }
+        }
+
+        buckets = new int[tables][1 << bits][];
+        for (int table = 0; table < tables; table++) {
+            List<List<Integer>> members = new ArrayList<>();
+            for (int signature = 0; signature < 1 << bits; signature++) {
+                members.add(new ArrayList<>());
+            }
+            for (int id = 0; id < this.vectors.length; id++) {
+                members.get(signature(table, this.vectors[id])).add(id);
+            }
+            for (int signature = 0; signature < 1 << bits; signature++) {
+                buckets[table][signature] = members.get(signature).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    /**
+     * Finds up to k items most similar to the query among the probed buckets.
+     *
+     * @param k Maximum number of neighbours, at least 1
+     * @return Neighbours, most similar first
+     */
+    List<Neighbor<T>> search(float[] query, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, was " + k);
+        }
+        boolean[] seen = new boolean[vectors.length];
+        int[] top = new int[k];
+        float[] topSimilarity = new float[k];
+        int found = 0;
+
+        for (int table = 0; table < tables; table++) {
+            int signature = signature(table, query);
+            for (int flip = -1; flip < bits; flip++) {
+                int probe = flip < 0 ? signature : signature ^ (1 << flip);
+                for (int id : buckets[table][probe]) {
+                    if (seen[id]) {
+                        continue;
+                    }
+                    seen[id] = true;
+
+                    float similarity = dot(query, vectors[id]);
+                    if (found < k || similarity > topSimilarity[found - 1]) {
+                        // Insertion into the sorted top-k
+                        int position = found < k ? found++ : k - 1;
+                        while (position > 0 && topSimilarity[position - 1] < similarity) {
+                            top[position] = top[position - 1];
+                            topSimilarity[position] = topSimilarity[position - 1];
+                            position--;
+                        }
+                        top[position] = id;
+                        topSimilarity[position] = similarity;
+                    }
+                }
+            }
+        }
+
+        List<Neighbor<T>> neighbors = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            neighbors.add(new Neighbor<>(values.get(top[i]), topSimilarity[i]));
+        }
+        return neighbors;
+    }
+
+    int size() {
+        return vectors.length;
+    }
+
+    /**
+     * Approximate heap used by vectors, hyperplanes and buckets
+     */
+    long memoryBytes() {
+        long bytes = (long) vectors.length * (16 + 4L * dimensions);
+        bytes += (long) hyperplanes.length * (16 + 4L * dimensions);
+        for (int[][] table : buckets) {
+            for (int[] bucket : table) {
+                bytes += 16 + 4L * bucket.length;
+            }
+        }
+        return bytes;
+    }
+
+    private int signature(int table, float[] vector) {
+        int signature = 0;
+        for (int bit = 0; bit < bits; bit++) {
+            if (dot(hyperplanes[table * bits + bit], vector) >= 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -1,66 +1,270 @@
 package com.dentalcare.chatbot.service;
 
 import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
+import com.dentalcare.chatbot.repository.ConversationStateJdbcWriter;
 import com.dentalcare.chatbot.repository.ConversationStateRepository;
+import com.dentalcare.chatbot.repository.ConversationStateSweeper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Database-based implementation of ConversationStateStore.
  * 
  * Provides persistent session storage using PostgreSQL.
- * Activated when 'redis' profile is NOT active (default).
+ * Activated when neither the 'redis' nor the 'mmap' profile is active (default).
  * 
  * Benefits:
  * - Persistent storage (survives restarts)
  * - No additional infrastructure needed
  * - Reliable for production use
+ * 
+ * Saves only send what changed since the state was loaded (see
+ * ConversationStateJdbcWriter); unchanged states are not written at all.
+ * 
+ * Write-behind mode (chatbot.state-store.write-behind.enabled=true):
+ * - save() only records the session as dirty; repeated saves of the same
+ *   session between flushes collapse into one write
+ * - Dirty sessions are written in one JDBC batch every flush-interval-ms,
+ *   which is the durability bound: a crash loses at most that much. The
+ *   flush has its own thread, so slow @Scheduled tasks cannot delay it
+ * - Saves that reach a flush step (CONFIRM_SLOT, SAVE_APPOINTMENT by
+ *   default) flush synchronously, so booking progress is never lost
+ * - Reads see pending writes (read-your-writes on this node); with several
+ *   nodes, keep sessions sticky or use the Redis store
+ * - save() clears the saved instance's persisted snapshot, so saving it (or
+ *   a copy of it, like the L1 of TieredConversationStateStore) again writes
+ *   it in full instead of diffing against the version before the flush
  */
 @Slf4j
 @Component
-@Profile("!redis")
+@Profile("!redis & !mmap")
+@Qualifier(ConversationStateStore.BACKEND)
 public class DatabaseConversationStateStore implements ConversationStateStore {
     
     @Autowired
     private ConversationStateRepository repository;
     
+    @Autowired
+    private ConversationStateJdbcWriter jdbcWriter;
+    
+    @Autowired
+    private ConversationStateSweeper sweeper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${chatbot.state-store.write-behind.enabled:false}")
+    private boolean writeBehind;
+    
+    @Value("${chatbot.state-store.write-behind.flush-steps:CONFIRM_SLOT,SAVE_APPOINTMENT}")
+    private Set<ConversationStep> flushSteps;
+    
+    @Value("${chatbot.state-store.write-behind.max-dirty-sessions:1000}")
+    private int maxDirtySessions;
+    
+    @Value("${chatbot.state-store.write-behind.flush-interval-ms:500}")
+    private long flushIntervalMs;
+    
+    @Value("${chatbot.state-store.sweep.chunk-size:1000}")
+    private int sweepChunkSize;
+    
+    @Value("${chatbot.state-store.sweep.max-chunks:100}")
+    private int sweepMaxChunks;
+    
+    /**
+     * Sessions saved since the last flush (latest version wins)
+     */
+    private final Map<String, ConversationState> dirty = new ConcurrentHashMap<>();
+    
+    /**
+     * Sessions taken from dirty by a flush that has not committed yet
+     */
+    private final Map<String, ConversationState> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * Serializes flushes. A lock rather than a monitor: the JDBC write runs
+     * while it is held, and a virtual thread blocked in a synchronized
+     * method would pin its carrier thread.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    private ScheduledExecutorService flusher;
+    
+    @PostConstruct
+    public void init() {
+        if (writeBehind) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("state-flush-"));
+            flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            Gauge.builder("chatbot.state-store.dirty-sessions", dirty, Map::size)
+                .description("Conversation states waiting to be flushed to the database")
+                .register(meterRegistry);
+            log.info("Database state store in write-behind mode (flushInterval={}ms, flushSteps={}, maxDirty={})",
+                flushIntervalMs, flushSteps, maxDirtySessions);
+        }
+    }
+    
     @Override
     @Transactional
     public void save(ConversationState state) {
-        repository.save(state);
-        log.debug("Saved conversation state to database: {}", state.getSessionId());
+        if (!writeBehind) {
+            jdbcWriter.writeAll(List.of(state));
+            log.debug("Saved conversation state to database: {}", state.getSessionId());
+            return;
+        }
+    
+        dirty.put(state.getSessionId(), state.copy());
+        // The flush records the queued copy as persisted, not this instance, whose snapshot would go stale
+        state.setPersisted(null);
+    
+        if (flushSteps.contains(state.getCurrentState()) || dirty.size() >= maxDirtySessions) {
+            flush();
+        }
     }
     
     @Override
     public Optional<ConversationState> findBySessionId(String sessionId) {
+        ConversationState pending = dirty.get(sessionId);
+        if (pending == null) {
+            pending = inFlight.get(sessionId);
+        }
+        if (pending != null) {
+            log.debug("Found pending conversation state: {}", sessionId);
+            // The stored version may change under a copy handed out now, so it is written in full
+            ConversationState copy = pending.copy();
+            copy.setPersisted(null);
+            return Optional.of(copy);
+        }
+    
         Optional<ConversationState> state = repository.findBySessionId(sessionId);
-        
+    
         if (state.isPresent()) {
+            // Detached, so Hibernate never flushes a full-row UPDATE over the partial writes
+            entityManager.detach(state.get());
             log.debug("Found conversation state in database: {}", sessionId);
         } else {
             log.debug("Conversation state not found in database: {}", sessionId);
         }
-        
+    
         return state;
     }
     
+    /**
+     * Writes all dirty sessions in one batch.
+     * Runs every flush-interval-ms in write-behind mode.
+     * 
+     * A failed batch is put back (unless a newer version was saved
+     * meanwhile) and retried on the next flush.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushBatch();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private void flushBatch() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+    
+        List<ConversationState> batch = new ArrayList<>(dirty.size());
+        for (String sessionId : dirty.keySet()) {
+            ConversationState state = dirty.remove(sessionId);
+            if (state != null) {
+                inFlight.put(sessionId, state);
+                batch.add(state);
+            }
+        }
+    
+        try {
+            jdbcWriter.writeAll(batch);
+            meterRegistry.counter("chatbot.state-store.flushed").increment(batch.size());
+            log.debug("Flushed {} conversation states to database", batch.size());
+        } catch (RuntimeException e) {
+            batch.forEach(state -> dirty.putIfAbsent(state.getSessionId(), state));
+            meterRegistry.counter("chatbot.state-store.flush-failures").increment();
+            log.error("Failed to flush {} conversation states: {}", batch.size(), e.getMessage());
+            throw e;
+        } finally {
+            batch.forEach(state -> inFlight.remove(state.getSessionId(), state));
+        }
+    }
+    
+    /**
+     * Periodic flush; skipped while a save is flushing, since that flush
+     * takes every dirty session. A failure is already logged and must not
+     * cancel later runs.
+     */
+    private void scheduledFlush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushBatch();
+        } catch (RuntimeException e) {
+            log.debug("Scheduled flush failed, will retry", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (writeBehind) {
+            flusher.shutdown();
+            flush();
+        }
+    }
+    
     /**
      * Scheduled task to delete expired sessions.
-     * Runs every 5 minutes.
+     * Runs every 5 minutes; only one node sweeps at a time (see ConversationStateSweeper).
      */
     @Override
     @Scheduled(fixedRate = 300000) // Every 5 minutes
-    @Transactional
     public void deleteExpired() {
         LocalDateTime now = LocalDateTime.now();
-        repository.deleteByExpiresAtBefore(now);
-        log.debug("Deleted expired conversation states before: {}", now);
+        long started = System.nanoTime();
+        long deleted = sweeper.sweep(now, sweepChunkSize, sweepMaxChunks);
+        
+        if (deleted < 0) {
+            log.debug("Skipped expired session sweep; another node holds the sweep lock");
+            return;
+        }
+        
+        meterRegistry.timer("chatbot.state-store.sweep").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("chatbot.state-store.swept").increment(deleted);
+        log.debug("Deleted {} expired conversation states before: {}", deleted, now);
     }
 }
@@ -0,0 +1,204 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for session expiry.
+ *
+ * Tracks one deadline per key and fires keys once their deadline has
+ * passed, without scanning the keys that are still live.
+ *
+ * - Four levels of 64 slots; level n slots span 64^n ticks, so with
+ *   1 second ticks the wheel covers ~194 days (later deadlines wait in
+ *   an overflow list that is re-filed when the top level wraps)
+ * - schedule() and cancel() are O(1): each key is a node in a doubly
+ *   linked slot list; rescheduling (sliding expiry) unlinks and relinks
+ * - advance() fires the current level 0 slot and, on level boundaries,
+ *   moves the next higher slot down; each key is moved at most once per
+ *   level
+ * - Deadlines are rounded up to the next tick: a key fires at most one
+ *   tick late, never early
+ *
+ * Not thread-safe; callers guard it with their own lock.
+ */
+final class ExpiryWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int OVERFLOW = -1;
+
+    private final long tickMillis;
+
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+
+    private final Node<K>[] slots;
+
+    private Node<K> overflow;
+
+    /**
+     * Last tick that has been fired
+     */
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    ExpiryWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = (Node<K>[]) new Node[LEVELS * SLOTS];
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the key to expire at the deadline, replacing its previous deadline.
+     */
+    void schedule(K key, long deadlineMillis) {
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            unlink(node);
+        }
+        // Round up so a key never fires before its deadline
+        node.deadline = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        link(node);
+    }
+
+    /**
+     * Stops tracking the key.
+     *
+     * @return true if the key was scheduled
+     */
+    boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Fires every key whose deadline is at or before now.
+     *
+     * @param nowMillis Current time
+     * @param expired Receives each expired key, in deadline order
+     * @return Number of keys fired
+     */
+    int advance(long nowMillis, Consumer<? super K> expired) {
+        long target = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < target) {
+            if (nodes.isEmpty()) {
+                currentTick = target;
+                break;
+            }
+            long tick = ++currentTick;
+            for (int level = LEVELS; level > 0; level--) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, tick);
+                }
+            }
+
+            int index = (int) (tick & SLOT_MASK);
+            Node<K> node = slots[index];
+            slots[index] = null;
+            while (node != null) {
+                Node<K> next = node.next;
+                node.prev = node.next = null;
+                nodes.remove(node.key);
+                expired.accept(node.key);
+                fired++;
+                node = next;
+            }
+        }
+        return fired;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Re-files the slot of the given level (or the overflow list) that starts at this tick.
+     */
+    private void cascade(int level, long tick) {
+        Node<K> node;
+        if (level == LEVELS) {
+            node = overflow;
+            overflow = null;
+        } else {
+            int index = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            node = slots[index];
+            slots[index] = null;
+        }
+        while (node != null) {
+            Node<K> next = node.next;
+            node.prev = node.next = null;
+            link(node);
+            node = next;
+        }
+    }
+
+    /**
+     * Files the node at the level of the highest 6-bit group in which its
+     * deadline differs from the current tick.
+     */
+    private void link(Node<K> node) {
+        long differing = (node.deadline ^ currentTick) | SLOT_MASK;
+        int level = (63 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS;
+
+        Node<K> head;
+        if (level >= LEVELS) {
+            node.slot = OVERFLOW;
+            head = overflow;
+            overflow = node;
+        } else {
+            node.slot = level * SLOTS + (int) ((node.deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+            head = slots[node.slot];
+            slots[node.slot] = node;
+        }
+        node.prev = null;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else if (node.slot == OVERFLOW) {
+            overflow = node.next;
+        } else {
+            slots[node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = node.next = null;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        long quotient = x / y;
+        return (x % y > 0) ? quotient + 1 : quotient;
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private long deadline;
+        private int slot;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key) {
+            this.key = key;
+        }
+    }
+}
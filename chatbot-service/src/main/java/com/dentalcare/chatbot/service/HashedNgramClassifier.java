@@ -0,0 +1,281 @@
+package com.dentalcare.chatbot.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Linear text classifier over hashed word and character n-grams.
+ *
+ * Features (all hashed into 2^bits buckets, value 1, scaled by
+ * 1/sqrt(feature count)):
+ * - word unigrams and bigrams (lowercased letters and digits)
+ * - character trigrams of each word, padded with begin/end markers, so
+ *   typos and inflections ("apointment", "booking") still share most
+ *   features with the trained words
+ *
+ * Scores are bias + weights, turned into probabilities with softmax.
+ * Features are hashed while scanning the text, so classify() allocates
+ * nothing.
+ *
+ * Model file (big-endian): int magic "NGRM", byte version, byte bits,
+ * short class count, class labels (modified UTF-8), float bias per class,
+ * int non-zero buckets, then per bucket: int index, float weight per
+ * class. Written by HashedNgramTrainer.
+ *
+ * Immutable and thread-safe once loaded.
+ */
+public final class HashedNgramClassifier {
+
+    static final int MAGIC = 0x4E47524D;
+    static final byte VERSION_1 = 1;
+
+    private static final long WORD = 0x9E3779B97F4A7C15L;
+    private static final long BIGRAM = 0xC2B2AE3D27D4EB4FL;
+    private static final long TRIGRAM = 0x165667B19E3779F9L;
+
+    private static final char WORD_START = '\u0001';
+    private static final char WORD_END = '\u0002';
+
+    /**
+     * Receives each feature bucket of a text.
+     *
+     * @param <S> Caller state, passed through so visitors need not capture it
+     */
+    @FunctionalInterface
+    interface FeatureVisitor<S> {
+        void visit(S state, int bucket);
+    }
+
+    private final int bits;
+
+    private final String[] labels;
+
+    private final float[] bias;
+
+    /**
+     * weights[bucket * classes + class]
+     */
+    private final float[] weights;
+
+    private final FeatureVisitor<float[]> addWeights;
+
+    HashedNgramClassifier(int bits, List<String> labels, float[] bias, float[] weights) {
+        if (bits < 1 || bits > 26) {
+            throw new IllegalArgumentException("bits must be between 1 and 26: " + bits);
+        }
+        if (bias.length != labels.size() || weights.length != (1 << bits) * labels.size()) {
+            throw new IllegalArgumentException("Model dimensions do not match " + labels.size() + " classes");
+        }
+        this.bits = bits;
+        this.labels = labels.toArray(new String[0]);
+        this.bias = bias;
+        this.weights = weights;
+
+        int classes = this.labels.length;
+        this.addWeights = (scores, bucket) -> {
+            int offset = bucket * classes;
+            for (int c = 0; c < classes; c++) {
+                scores[c] += weights[offset + c];
+            }
+        };
+    }
+
+    /**
+     * Classifies the text.
+     *
+     * @param text Text to classify
+     * @param probabilities Receives one probability per class (length = classCount())
+     * @return Index of the most probable class
+     */
+    public int classify(CharSequence text, float[] probabilities) {
+        int classes = labels.length;
+        for (int c = 0; c < classes; c++) {
+            probabilities[c] = 0;
+        }
+
+        int count = features(text, bits, probabilities, addWeights);
+        float scale = count > 0 ? (float) (1 / Math.sqrt(count)) : 0;
+
+        float max = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < classes; c++) {
+            probabilities[c] = bias[c] + probabilities[c] * scale;
+            max = Math.max(max, probabilities[c]);
+        }
+        return softmax(probabilities, classes, max);
+    }
+
+    public int classCount() {
+        return labels.length;
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    /**
+     * Reads a model written by {@link #write(OutputStream)}.
+     */
+    public static HashedNgramClassifier read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an n-gram model file");
+        }
+        byte version = in.readByte();
+        if (version != VERSION_1) {
+            throw new IOException("Unsupported n-gram model version " + version);
+        }
+        int bits = in.readByte();
+        int classes = in.readShort();
+        String[] labels = new String[classes];
+        for (int c = 0; c < classes; c++) {
+            labels[c] = in.readUTF();
+        }
+        float[] bias = new float[classes];
+        for (int c = 0; c < classes; c++) {
+            bias[c] = in.readFloat();
+        }
+
+        float[] weights = new float[(1 << bits) * classes];
+        int buckets = in.readInt();
+        for (int i = 0; i < buckets; i++) {
+            int offset = in.readInt() * classes;
+            for (int c = 0; c < classes; c++) {
+                weights[offset + c] = in.readFloat();
+            }
+        }
+        return new HashedNgramClassifier(bits, List.of(labels), bias, weights);
+    }
+
+    /**
+     * Writes the model, storing only buckets with a non-zero weight.
+     */
+    public void write(OutputStream output) throws IOException {
+        int classes = labels.length;
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION_1);
+        out.writeByte(bits);
+        out.writeShort(classes);
+        for (String label : labels) {
+            out.writeUTF(label);
+        }
+        for (float b : bias) {
+            out.writeFloat(b);
+        }
+
+        int buckets = 1 << bits;
+        int nonZero = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (!isZero(bucket)) {
+                nonZero++;
+            }
+        }
+        out.writeInt(nonZero);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (!isZero(bucket)) {
+                out.writeInt(bucket);
+                for (int c = 0; c < classes; c++) {
+                    out.writeFloat(weights[bucket * classes + c]);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Hashes the n-gram features of the text in one pass.
+     *
+     * @return Number of features visited
+     */
+    static <S> int features(CharSequence text, int bits, S state, FeatureVisitor<S> visitor) {
+        int shift = 64 - bits;
+        int count = 0;
+        long word = 0;
+        long previousWord = 0;
+        boolean inWord = false;
+        // Last two characters of the current word, WORD_START-padded
+        char c1 = 0;
+        char c2 = 0;
+
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                if (!inWord) {
+                    inWord = true;
+                    word = WORD;
+                    c1 = WORD_START;
+                    c2 = WORD_START;
+                }
+                word = (word ^ c) * 0x100000001B3L;
+                visitor.visit(state, bucket(trigram(c1, c2, c), shift));
+                count++;
+                c1 = c2;
+                c2 = c;
+            } else if (inWord) {
+                inWord = false;
+                visitor.visit(state, bucket(trigram(c1, c2, WORD_END), shift));
+                visitor.visit(state, bucket(word, shift));
+                count += 2;
+                if (previousWord != 0) {
+                    visitor.visit(state, bucket((previousWord * 31) ^ word ^ BIGRAM, shift));
+                    count++;
+                }
+                previousWord = word;
+            }
+        }
+        return count;
+    }
+
+    private boolean isZero(int bucket) {
+        int classes = labels.length;
+        for (int c = 0; c < classes; c++) {
+            if (weights[bucket * classes + c] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * In-place softmax over the first n scores.
+     *
+     * @return Index of the largest probability
+     */
+    static int softmax(float[] scores, int n, float max) {
+        float sum = 0;
+        int best = 0;
+        for (int c = 0; c < n; c++) {
+            scores[c] = (float) Math.exp(scores[c] - max);
+            sum += scores[c];
+            if (scores[c] > scores[best]) {
+                best = c;
+            }
+        }
+        for (int c = 0; c < n; c++) {
+            scores[c] /= sum;
+        }
+        return best;
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32 | (long) b << 16 | c) ^ TRIGRAM;
+    }
+
+    /**
+     * Top bits of a mixed 64-bit hash (murmur3 finalizer)
+     */
+    private static int bucket(long hash, int shift) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) (hash >>> shift);
+    }
+}
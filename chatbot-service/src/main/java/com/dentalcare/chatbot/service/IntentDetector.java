@@ -1,6 +1,9 @@
 package com.dentalcare.chatbot.service;
 
 import com.dentalcare.chatbot.model.Intent;
+import com.dentalcare.chatbot.model.IntentScore;
+
+import java.util.List;
 
 /**
  * Interface for detecting user intent from text input.
@@ -19,4 +22,17 @@ public interface IntentDetector {
      * @return Detected intent
      */
     Intent detectIntent(String text);
+    
+    /**
+     * Scores every intent the text points to, strongest first.
+     * 
+     * Detectors that only pick one intent report it with score 1.
+     * 
+     * @param text User's input text
+     * @return Matching intents, best first; empty if none matched
+     */
+    default List<IntentScore> rankIntents(String text) {
+        Intent intent = detectIntent(text);
+        return intent == Intent.UNKNOWN ? List.of() : List.of(new IntentScore(intent, 1.0));
+    }
 }
@@ -0,0 +1,303 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Multi-keyword matcher compiled into an Aho-Corasick automaton.
+ *
+ * Finds every keyword in one left-to-right pass over the text, however
+ * many keywords there are. Matching is case-insensitive and whole-word:
+ * "who" matches "Who is available?" but not "whole".
+ *
+ * - Letters and digits are word characters; any run of other characters
+ *   (spaces, punctuation) acts as a single word boundary, so the phrase
+ *   "tell me" also matches "tell  me" and "tell-me"
+ * - A keyword ending in '*' matches as a word prefix: "pain*" matches
+ *   "pain" and "painful" but not "spain"
+ * - Keywords are compiled with a boundary on both sides and the text is
+ *   scanned as if padded with boundaries, so whole-word matching needs
+ *   no look-behind
+ * - The automaton is a dense transition table over the characters that
+ *   occur in keywords; scanning does not allocate
+ *
+ * Immutable and thread-safe once built.
+ *
+ * @param <T> Label reported for a matched keyword (e.g. an Intent)
+ */
+public final class KeywordAutomaton<T> {
+
+    /**
+     * Symbol for a run of non-word characters
+     */
+    private static final int BOUNDARY = 0;
+
+    /**
+     * Symbol for word characters that occur in no keyword
+     */
+    private static final int OTHER = 1;
+
+    private static final int FIRST_CHAR = 2;
+
+    private final int symbols;
+
+    /**
+     * Symbol per ASCII character, either case; non-ASCII characters are
+     * looked up in extendedSymbols
+     */
+    private final int[] asciiSymbols;
+
+    private final Map<Character, Integer> extendedSymbols;
+
+    /**
+     * transitions[state * symbols + symbol] = next state
+     */
+    private final int[] transitions;
+
+    /**
+     * Keywords that end in each state, including those reached through suffix links
+     */
+    private final int[][] outputs;
+
+    private final List<T> labels;
+
+    private final double[] weights;
+
+    private KeywordAutomaton(Builder<T> builder) {
+        this.labels = List.copyOf(builder.labels);
+        this.weights = new double[labels.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = builder.weights.get(i);
+        }
+
+        asciiSymbols = new int[128];
+        for (char c = 0; c < 128; c++) {
+            asciiSymbols[c] = Character.isLetterOrDigit(c) ? OTHER : BOUNDARY;
+        }
+        extendedSymbols = new HashMap<>();
+        int next = FIRST_CHAR;
+        for (String keyword : builder.keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c != ' ' && symbol(c) == OTHER) {
+                    if (c < 128) {
+                        asciiSymbols[c] = next;
+                        asciiSymbols[Character.toUpperCase(c)] = next++;
+                    } else {
+                        extendedSymbols.put(c, next++);
+                    }
+                }
+            }
+        }
+        symbols = next;
+
+        // Trie of " keyword " (" keyword" for prefixes) for every keyword
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(newRow());
+        ends.add(new ArrayList<>());
+        for (int k = 0; k < builder.keywords.size(); k++) {
+            int state = 0;
+            String keyword = builder.keywords.get(k);
+            int end = builder.prefixes.get(k) ? keyword.length() - 1 : keyword.length();
+            for (int i = -1; i <= end; i++) {
+                int symbol = (i < 0 || i == keyword.length()) ? BOUNDARY : symbol(keyword.charAt(i));
+                int target = trie.get(state)[symbol];
+                if (target < 0) {
+                    target = trie.size();
+                    trie.add(newRow());
+                    ends.add(new ArrayList<>());
+                    trie.get(state)[symbol] = target;
+                }
+                state = target;
+            }
+            ends.get(state).add(k);
+        }
+
+        // Breadth-first: fill missing transitions from the suffix link and merge outputs
+        int states = trie.size();
+        transitions = new int[states * symbols];
+        outputs = new int[states][];
+        int[] suffixLink = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+
+        outputs[0] = new int[0];
+        for (int symbol = 0; symbol < symbols; symbol++) {
+            int target = trie.get(0)[symbol];
+            if (target < 0) {
+                transitions[symbol] = 0;
+            } else {
+                transitions[symbol] = target;
+                suffixLink[target] = 0;
+                queue.add(target);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = merge(ends.get(state), outputs[suffixLink[state]]);
+            for (int symbol = 0; symbol < symbols; symbol++) {
+                int target = trie.get(state)[symbol];
+                int fallback = transitions[suffixLink[state] * symbols + symbol];
+                if (target < 0) {
+                    transitions[state * symbols + symbol] = fallback;
+                } else {
+                    transitions[state * symbols + symbol] = target;
+                    suffixLink[target] = fallback;
+                    queue.add(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the text once and reports every whole-word keyword occurrence.
+     *
+     * @param text Text to scan
+     * @param matches Receives the label and weight of each occurrence
+     */
+    public void scan(CharSequence text, ObjDoubleConsumer<? super T> matches) {
+        int state = transitions[BOUNDARY];
+        boolean inBoundary = true;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            int symbol;
+            if (i == length) {
+                symbol = BOUNDARY;
+            } else {
+                char c = text.charAt(i);
+                if (c < 128) {
+                    symbol = asciiSymbols[c];
+                } else if (Character.isLetterOrDigit(c)) {
+                    symbol = extendedSymbols.getOrDefault(Character.toLowerCase(c), OTHER);
+                } else {
+                    symbol = BOUNDARY;
+                }
+            }
+            if (symbol == BOUNDARY) {
+                if (inBoundary) {
+                    continue;
+                }
+                inBoundary = true;
+            } else {
+                inBoundary = false;
+            }
+
+            state = transitions[state * symbols + symbol];
+            int[] ended = outputs[state];
+            for (int k = 0; k < ended.length; k++) {
+                matches.accept(labels.get(ended[k]), weights[ended[k]]);
+            }
+        }
+    }
+
+    /**
+     * Number of automaton states (for logging)
+     */
+    public int size() {
+        return outputs.length;
+    }
+
+    /**
+     * Symbol of a lowercase keyword character
+     */
+    private int symbol(char c) {
+        if (c < 128) {
+            return asciiSymbols[c];
+        }
+        return extendedSymbols.getOrDefault(c, OTHER);
+    }
+
+    private int[] newRow() {
+        int[] row = new int[symbols];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] merge(List<Integer> own, int[] inherited) {
+        int[] merged = Arrays.copyOf(inherited, inherited.length + own.size());
+        for (int i = 0; i < own.size(); i++) {
+            merged[inherited.length + i] = own.get(i);
+        }
+        return merged;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Collects keywords before compiling the automaton.
+     */
+    public static final class Builder<T> {
+
+        private final List<String> keywords = new ArrayList<>();
+        private final List<T> labels = new ArrayList<>();
+        private final List<Double> weights = new ArrayList<>();
+        private final List<Boolean> prefixes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a keyword or phrase.
+         *
+         * @param keyword Word or space-separated phrase (case-insensitive),
+         *                optionally ending in '*' to match as a prefix
+         * @param label Label reported when it matches
+         * @param weight Weight reported when it matches
+         */
+        public Builder<T> add(String keyword, T label, double weight) {
+            String trimmed = keyword.strip();
+            boolean prefix = trimmed.endsWith("*");
+            String normalized = normalize(prefix ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+            if (normalized.isEmpty()) {
+                throw new IllegalArgumentException("Keyword has no word characters: '" + keyword + "'");
+            }
+            keywords.add(normalized);
+            prefixes.add(prefix);
+            labels.add(label);
+            weights.add(weight);
+            return this;
+        }
+
+        public Builder<T> addAll(T label, double weight, String... keywords) {
+            for (String keyword : keywords) {
+                add(keyword, label, weight);
+            }
+            return this;
+        }
+
+        public KeywordAutomaton<T> build() {
+            return new KeywordAutomaton<>(this);
+        }
+
+        /**
+         * Lowercases and turns every run of non-word characters into one space.
+         */
+        private static String normalize(String keyword) {
+            StringBuilder normalized = new StringBuilder(keyword.length());
+            boolean boundary = true;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    normalized.append(Character.toLowerCase(c));
+                    boundary = false;
+                } else if (!boundary) {
+                    normalized.append(' ');
+                    boundary = true;
+                }
+            }
+            int end = normalized.length();
+            if (end > 0 && normalized.charAt(end - 1) == ' ') {
+                normalized.setLength(end - 1);
+            }
+            return normalized.toString();
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.dentalcare.chatbot.service;
 
 import com.dentalcare.chatbot.model.Intent;
+import com.dentalcare.chatbot.model.IntentScore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Keyword-based intent detector.
@@ -15,6 +16,17 @@ import java.util.Map;
  * Uses simple keyword matching to classify user intent.
  * Fast and reliable for common use cases.
  * 
+ * All keywords are compiled into one KeywordAutomaton at startup, so a
+ * message is scanned once regardless of the number of keywords:
+ * - Only whole words match ("who" does not match "whole"); inflections
+ *   come from prefix keywords ("schedul*" matches "scheduled"), and are
+ *   listed where a prefix would over-match ("book*" would match
+ *   "bookkeeper") or the form is irregular ("paid")
+ * - Every occurrence adds its keyword's weight to its intent; strong
+ *   keywords weigh 1, ambiguous ones 0.5
+ * - Intents are ranked by score, ties broken by declaration order, so
+ *   the result does not depend on map iteration order
+ * 
  * Extension point: Replace with ML-based detector for more sophisticated intent detection.
  */
 @Slf4j
@@ -22,30 +34,53 @@ import java.util.Map;
 @Profile("!ml")
 public class KeywordIntentDetector implements IntentDetector {
     
-    private static final Map<Intent, List<String>> INTENT_KEYWORDS = Map.of(
-        Intent.BOOKING, Arrays.asList("book", "appointment", "schedule", "reserve", "visit"),
-        Intent.DENTIST_INFO, Arrays.asList("dentist", "doctor", "specialist", "who", "available"),
-        Intent.PAYMENT, Arrays.asList("pay", "payment", "cost", "price", "insurance", "bill"),
-        Intent.GENERAL_INQUIRY, Arrays.asList("help", "question", "info", "information", "tell me")
-    );
+    private static final double STRONG = 1.0;
+    private static final double WEAK = 0.5;
+    
+    private static final KeywordAutomaton<Intent> KEYWORDS = KeywordAutomaton.<Intent>builder()
+        .addAll(Intent.BOOKING, STRONG, "book", "books", "booking", "booked", "rebook", "rebooking",
+            "appointment*", "schedul*", "reschedul*", "reserv*")
+        .addAll(Intent.BOOKING, WEAK, "visit*")
+        .addAll(Intent.DENTIST_INFO, STRONG, "dentist*", "doctor*", "specialist*")
+        .addAll(Intent.DENTIST_INFO, WEAK, "who", "available", "availability")
+        .addAll(Intent.PAYMENT, STRONG, "pay", "pays", "paying", "paid", "payment*", "cost", "costs",
+            "price", "prices", "priced", "pricing", "insur*", "bill*")
+        .addAll(Intent.GENERAL_INQUIRY, STRONG, "question*", "tell me")
+        .addAll(Intent.GENERAL_INQUIRY, WEAK, "help", "info", "information")
+        .build();
+    
+    private static final Intent[] INTENTS = Intent.values();
+    
+    private static final Comparator<IntentScore> BY_SCORE = Comparator
+        .comparingDouble(IntentScore::score).reversed()
+        .thenComparing(IntentScore::intent);
     
     @Override
     public Intent detectIntent(String text) {
-        String lowerText = text.toLowerCase();
-        
         log.debug("Detecting intent for text: {}", text);
         
-        // Check each intent's keywords
-        for (Map.Entry<Intent, List<String>> entry : INTENT_KEYWORDS.entrySet()) {
-            for (String keyword : entry.getValue()) {
-                if (lowerText.contains(keyword)) {
-                    log.info("Detected intent: {} (keyword: {})", entry.getKey(), keyword);
-                    return entry.getKey();
-                }
-            }
+        List<IntentScore> ranked = rankIntents(text);
+        if (ranked.isEmpty()) {
+            log.info("No intent detected, returning UNKNOWN");
+            return Intent.UNKNOWN;
         }
         
-        log.info("No intent detected, returning UNKNOWN");
-        return Intent.UNKNOWN;
+        log.info("Detected intent: {} (ranking: {})", ranked.get(0).intent(), ranked);
+        return ranked.get(0).intent();
+    }
+    
+    @Override
+    public List<IntentScore> rankIntents(String text) {
+        double[] scores = new double[INTENTS.length];
+        KEYWORDS.scan(text, (intent, weight) -> scores[intent.ordinal()] += weight);
+        
+        List<IntentScore> ranked = new ArrayList<>(2);
+        for (Intent intent : INTENTS) {
+            if (scores[intent.ordinal()] > 0) {
+                ranked.add(new IntentScore(intent, scores[intent.ordinal()]));
+            }
+        }
+        ranked.sort(BY_SCORE);
+        return ranked;
     }
 }
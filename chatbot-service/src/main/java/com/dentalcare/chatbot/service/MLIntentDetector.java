@@ -1,37 +1,107 @@
 package com.dentalcare.chatbot.service;
 
 import com.dentalcare.chatbot.model.Intent;
+import com.dentalcare.chatbot.model.IntentScore;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 /**
- * ML-based intent detector (placeholder for future implementation).
- * 
- * TODO: Integrate with ML model (TensorFlow, OpenNLP, or external AI service)
- * 
+ * ML-based intent detector.
+ *
+ * Classifies messages in-process with a linear model over hashed word and
+ * character n-grams (HashedNgramClassifier), so no external call is added
+ * to a message's latency. The model is trained offline by
+ * HashedNgramTrainer from {@code ml/intent-corpus.tsv} and loaded at startup.
+ *
  * Activated when 'ml' profile is active.
- * 
- * Extension points:
- * - Load pre-trained model
- * - Call external AI API (OpenAI, etc.)
- * - Use NLP library (Stanford NLP, spaCy via REST API)
+ *
+ * Behaviour:
+ * - The model has one class per Intent; UNKNOWN is trained on replies
+ *   that carry no intent (names, contact details, symptoms, yes/no)
+ * - detectIntent() returns UNKNOWN unless the best class reaches
+ *   {@code chatbot.ml.min-confidence}
+ * - Each call allocates one probability buffer (one float per class,
+ *   40 bytes for the five-class model) and nothing else; the classifier
+ *   itself does not allocate
  */
 @Slf4j
 @Component
 @Profile("ml")
 public class MLIntentDetector implements IntentDetector {
-    
+
+    /**
+     * Intents below this probability are left out of rankIntents()
+     */
+    private static final double RANK_FLOOR = 0.05;
+
+    @Value("${chatbot.ml.intent-model:classpath:ml/intent-model.bin}")
+    private Resource modelResource;
+
+    @Value("${chatbot.ml.min-confidence:0.5}")
+    private double minConfidence;
+
+    private HashedNgramClassifier model;
+
+    /**
+     * Intent of each model class
+     */
+    private Intent[] intents;
+
+    @PostConstruct
+    public void init() throws IOException {
+        try (InputStream in = modelResource.getInputStream()) {
+            model = HashedNgramClassifier.read(in);
+        }
+
+        intents = new Intent[model.classCount()];
+        for (int c = 0; c < intents.length; c++) {
+            try {
+                intents[c] = Intent.valueOf(model.label(c));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Intent model class '" + model.label(c) + "' is not an Intent", e);
+            }
+        }
+
+        log.info("ML intent detector loaded {} ({} classes, min confidence {})",
+            modelResource.getDescription(), intents.length, minConfidence);
+    }
+
     @Override
     public Intent detectIntent(String text) {
-        log.warn("ML Intent Detector not yet implemented, returning UNKNOWN");
-        
-        // TODO: Implement ML-based intent detection
-        // Example approaches:
-        // 1. Load TensorFlow model and classify
-        // 2. Call OpenAI API for classification
-        // 3. Use pre-trained NLP model
-        
-        return Intent.UNKNOWN;
+        float[] scores = new float[intents.length];
+        int best = model.classify(text, scores);
+
+        if (scores[best] < minConfidence) {
+            log.debug("No confident intent for text (best {} at {})", intents[best], scores[best]);
+            return Intent.UNKNOWN;
+        }
+
+        log.debug("Detected intent: {} (confidence {})", intents[best], scores[best]);
+        return intents[best];
+    }
+
+    @Override
+    public List<IntentScore> rankIntents(String text) {
+        float[] scores = new float[intents.length];
+        model.classify(text, scores);
+
+        List<IntentScore> ranked = new ArrayList<>(intents.length);
+        for (int c = 0; c < intents.length; c++) {
+            if (intents[c] != Intent.UNKNOWN && scores[c] >= RANK_FLOOR) {
+                ranked.add(new IntentScore(intents[c], scores[c]));
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(IntentScore::score).reversed());
+        return ranked;
     }
 }
@@ -0,0 +1,605 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped append-log implementation of ConversationStateStore.
+ *
+ * For single-node deployments without Redis: sessions live in one
+ * memory-mapped log file, with an in-memory index of the latest record
+ * per session. Activated when 'mmap' profile is active.
+ *
+ * Record layout: int payload length, int CRC32 of payload, payload =
+ * record type, expiry (epoch millis), session ID, encoded state
+ * (ConversationStateCodec). A zero length marks the end of the log.
+ *
+ * Behaviour:
+ * - save() appends a record; the previous record of that session
+ *   becomes garbage
+ * - On startup the index is rebuilt by scanning the log; a torn or
+ *   corrupt tail (crash mid-write) is cut off at the last valid record
+ * - Expired sessions are dropped from the index as they expire: each
+ *   save (re)schedules the session on an ExpiryWheel, and
+ *   deleteExpired() fires only the sessions that are due, without
+ *   scanning the index; expired records are skipped when the log is
+ *   scanned
+ * - Compaction copies live records into a new generation file, which
+ *   replaces the old one with an atomic rename; it runs when garbage
+ *   exceeds the configured ratio or the file is full, and the file
+ *   doubles in size (up to 2 GiB, the most one mapping can hold) if live
+ *   data alone does not fit
+ * - Scheduled compaction copies under the read lock and syncs the new
+ *   file without holding any lock, so saves only wait for the copy and
+ *   for the records saved in the meantime to be carried over
+ *
+ * Writes survive a process crash (they are in the page cache) but not a
+ * power failure unless {@code fsync} is enabled.
+ */
+@Slf4j
+@Component
+@Profile("mmap")
+@Qualifier(ConversationStateStore.BACKEND)
+public class MappedLogConversationStateStore implements ConversationStateStore {
+
+    private static final byte PUT = 1;
+
+    /**
+     * length + crc
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * Payload offset of the session ID length (after type and expiry)
+     */
+    private static final int ID_LENGTH_OFFSET = 1 + 8;
+
+    /**
+     * type + expiry + session ID length
+     */
+    private static final int PAYLOAD_PREFIX_BYTES = ID_LENGTH_OFFSET + 2;
+
+    /**
+     * Largest buffer FileChannel.map can return
+     */
+    private static final int MAX_FILE_SIZE = Integer.MAX_VALUE;
+
+    private static final Pattern LOG_FILE = Pattern.compile("sessions\\.(\\d+)\\.log");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatbot.state-store.mmap.directory:./data/sessions}")
+    private Path directory;
+
+    @Value("${chatbot.state-store.mmap.file-size-bytes:67108864}")
+    private int initialFileSize;
+
+    @Value("${chatbot.state-store.mmap.compaction-garbage-ratio:0.5}")
+    private double compactionGarbageRatio;
+
+    @Value("${chatbot.state-store.mmap.fsync:false}")
+    private boolean fsync;
+
+    @Value("${chatbot.state-store.mmap.expiry-tick-ms:1000}")
+    private long expiryTickMillis;
+
+    private final ConversationStateCodec codec = new ConversationStateCodec();
+
+    private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Session expiry deadlines; guarded by the write lock
+     */
+    private ExpiryWheel<String> expiry;
+
+    private long generation;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private int writePosition;
+
+    private long liveBytes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    // Unfinished compaction; the previous generation is still intact
+                    Files.delete(file);
+                }
+            }
+        }
+
+        generation = latestGeneration();
+        Path file = logFile(generation);
+        int size = (int) Math.min(Math.max(Files.exists(file) ? Files.size(file) : 0, initialFileSize), MAX_FILE_SIZE);
+        open(file, size);
+        expiry = new ExpiryWheel<>(expiryTickMillis, System.currentTimeMillis());
+        recover();
+        deleteOlderGenerations();
+
+        Gauge.builder("chatbot.state-store.mmap.sessions", index, Map::size)
+            .description("Sessions in the memory-mapped store index")
+            .register(meterRegistry);
+        Gauge.builder("chatbot.state-store.mmap.log-bytes", this, store -> store.writePosition)
+            .description("Bytes used in the current log file (live + garbage)")
+            .register(meterRegistry);
+        Gauge.builder("chatbot.state-store.mmap.live-bytes", this, store -> store.liveBytes)
+            .description("Bytes used by the latest record of each session")
+            .register(meterRegistry);
+
+        log.info("Memory-mapped state store opened {} ({} sessions, {} of {} bytes used)",
+            file, index.size(), writePosition, buffer.capacity());
+    }
+
+    @Override
+    public void save(ConversationState state) {
+        byte[] record = encode(PUT, state.getSessionId(), expiresAtMillis(state.getExpiresAt()), codec.serialize(state));
+
+        lock.writeLock().lock();
+        try {
+            IndexEntry entry = append(record, expiresAtMillis(state.getExpiresAt()));
+            replace(state.getSessionId(), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.debug("Saved conversation state to mapped log: {}", state.getSessionId());
+    }
+
+    @Override
+    public Optional<ConversationState> findBySessionId(String sessionId) {
+        lock.readLock().lock();
+        try {
+            IndexEntry entry = index.get(sessionId);
+            if (entry == null || entry.expiresAt() <= System.currentTimeMillis()) {
+                log.debug("Conversation state not found in mapped log: {}", sessionId);
+                return Optional.empty();
+            }
+
+            byte[] payload = new byte[entry.length() - HEADER_BYTES];
+            buffer.get(entry.offset() + HEADER_BYTES, payload);
+            int stateOffset = PAYLOAD_PREFIX_BYTES + (ByteBuffer.wrap(payload).getShort(ID_LENGTH_OFFSET) & 0xFFFF);
+            ConversationState state = codec.deserialize(Arrays.copyOfRange(payload, stateOffset, payload.length));
+
+            log.debug("Found conversation state in mapped log: {}", sessionId);
+            return Optional.ofNullable(state);
+        } catch (SerializationException e) {
+            log.warn("Unreadable conversation state {}: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops sessions that expired since the last tick from the index.
+     * Cost is proportional to the sessions that expired, not to the index
+     * size; their records are reclaimed by the next compaction.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${chatbot.state-store.mmap.expiry-tick-ms:1000}")
+    public void deleteExpired() {
+        int removed;
+
+        lock.writeLock().lock();
+        try {
+            removed = expiry.advance(System.currentTimeMillis(), sessionId -> {
+                IndexEntry entry = index.remove(sessionId);
+                if (entry != null) {
+                    liveBytes -= entry.length();
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (removed > 0) {
+            log.debug("Deleted {} expired conversation states from mapped log", removed);
+        }
+    }
+
+    /**
+     * Compacts the log once garbage exceeds the configured share of it.
+     * Saves are blocked only while live records are copied and while the
+     * ones saved during the sync are carried over, not during the sync.
+     */
+    @Scheduled(fixedDelayString = "${chatbot.state-store.mmap.compaction-interval-ms:60000}")
+    public void compactIfNeeded() {
+        Compaction compaction = null;
+        try {
+            lock.readLock().lock();
+            try {
+                if (writePosition == 0 || (writePosition - liveBytes) <= compactionGarbageRatio * writePosition) {
+                    return;
+                }
+                compaction = copyLive(buffer.capacity());
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            compaction.out.force();
+
+            lock.writeLock().lock();
+            try {
+                switchTo(compaction);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            log.error("Mapped log compaction failed", e);
+        } finally {
+            if (compaction != null) {
+                compaction.close();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private IndexEntry append(byte[] record, long expiresAt) {
+        if ((long) writePosition + record.length > buffer.capacity()) {
+            try {
+                compact(buffer.capacity());
+                long required = (long) writePosition + record.length;
+                if (required > buffer.capacity()) {
+                    if (required > MAX_FILE_SIZE) {
+                        throw new IllegalStateException("Mapped log is full: live sessions need more than "
+                            + MAX_FILE_SIZE + " bytes");
+                    }
+                    compact((int) Math.min(Math.max(2L * buffer.capacity(), required), MAX_FILE_SIZE));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Mapped log is full and could not be compacted", e);
+            }
+        }
+
+        int offset = writePosition;
+        buffer.put(offset, record);
+        writePosition += record.length;
+        if (fsync) {
+            buffer.force(offset, record.length);
+        }
+        return new IndexEntry(offset, record.length, expiresAt);
+    }
+
+    private void replace(String sessionId, IndexEntry entry) {
+        IndexEntry previous = index.put(sessionId, entry);
+        if (previous != null) {
+            liveBytes -= previous.length();
+        }
+        liveBytes += entry.length();
+
+        if (entry.expiresAt() != Long.MAX_VALUE) {
+            expiry.schedule(sessionId, entry.expiresAt());
+        } else {
+            expiry.cancel(sessionId);
+        }
+    }
+
+    /**
+     * Compacts into a new generation file of the given size and switches to
+     * it. Caller holds the write lock.
+     */
+    private void compact(int newSize) throws IOException {
+        Compaction compaction = copyLive(newSize);
+        try {
+            compaction.out.force();
+            switchTo(compaction);
+        } finally {
+            compaction.close();
+        }
+    }
+
+    /**
+     * Copies the latest live record of every session into a temporary file
+     * for the next generation. Caller holds the read or write lock.
+     */
+    private Compaction copyLive(int newSize) throws IOException {
+        Path tmp = Files.createTempFile(directory, logFile(generation + 1).getFileName() + ".", ".tmp");
+        Compaction compaction = new Compaction(generation, tmp, FileChannel.open(tmp,
+            StandardOpenOption.READ, StandardOpenOption.WRITE));
+        try {
+            compaction.out = compaction.target.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+                if (entry.getValue().expiresAt() > now) {
+                    compaction.copy(entry.getKey(), entry.getValue());
+                }
+            }
+            return compaction;
+        } catch (IOException | RuntimeException e) {
+            compaction.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Carries over records saved since the copy, then renames the copy into
+     * place and switches to it. Caller holds the write lock.
+     */
+    private void switchTo(Compaction compaction) throws IOException {
+        if (compaction.generation != generation) {
+            log.debug("Discarding mapped log compaction; the log was compacted meanwhile");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int copied = compaction.position;
+        Map<String, IndexEntry> compacted = new ConcurrentHashMap<>();
+        long live = 0;
+        for (Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+            IndexEntry current = entry.getValue();
+            if (current.expiresAt() <= now) {
+                continue;
+            }
+            IndexEntry target = current.equals(compaction.sources.get(entry.getKey()))
+                ? compaction.targets.get(entry.getKey())
+                : null;
+            if (target == null) {
+                if ((long) compaction.position + current.length() > compaction.out.capacity()) {
+                    log.info("Records saved during mapped log compaction do not fit; retrying later");
+                    return;
+                }
+                target = compaction.copy(entry.getKey(), current);
+            }
+            compacted.put(entry.getKey(), target);
+            live += target.length();
+        }
+        if (compaction.position > copied) {
+            compaction.out.force(copied, compaction.position - copied);
+        }
+
+        Path file = logFile(compaction.generation + 1);
+        Files.move(compaction.tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        compaction.moved = true;
+        Path previous = logFile(generation);
+
+        channel.close();
+        open(file, compaction.out.capacity());
+        generation = compaction.generation + 1;
+        writePosition = compaction.position;
+        index.clear();
+        index.putAll(compacted);
+        liveBytes = live;
+
+        try {
+            Files.deleteIfExists(previous);
+        } catch (IOException e) {
+            // Deleted on the next startup instead
+            log.warn("Could not delete old mapped log {}: {}", previous, e.getMessage());
+        }
+
+        meterRegistry.counter("chatbot.state-store.mmap.compactions").increment();
+        log.info("Compacted mapped log into {} ({} sessions, {} bytes, {} ms)",
+            file, compacted.size(), compaction.position, (System.nanoTime() - compaction.started) / 1_000_000);
+    }
+
+    /**
+     * Rebuilds the index by scanning the log up to the first empty or invalid record.
+     */
+    private void recover() {
+        long now = System.currentTimeMillis();
+        CRC32 crc = new CRC32();
+        int position = 0;
+        boolean torn = false;
+        byte[] payload = new byte[0];
+
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0) {
+                break;
+            }
+            if (length < PAYLOAD_PREFIX_BYTES || position + HEADER_BYTES + length > buffer.capacity()) {
+                log.warn("Mapped log has an invalid record at offset {}; discarding the tail", position);
+                torn = true;
+                break;
+            }
+
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            buffer.get(position + HEADER_BYTES, payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4) || payload[0] != PUT) {
+                log.warn("Mapped log has a torn record at offset {}; discarding the tail", position);
+                torn = true;
+                break;
+            }
+
+            ByteBuffer fields = ByteBuffer.wrap(payload, 0, length);
+            long expiresAt = fields.getLong(1);
+            int idLength = fields.getShort(ID_LENGTH_OFFSET) & 0xFFFF;
+            String sessionId = new String(payload, PAYLOAD_PREFIX_BYTES, idLength, StandardCharsets.UTF_8);
+            IndexEntry entry = new IndexEntry(position, HEADER_BYTES + length, expiresAt);
+
+            if (expiresAt <= now) {
+                IndexEntry previous = index.remove(sessionId);
+                if (previous != null) {
+                    liveBytes -= previous.length();
+                    expiry.cancel(sessionId);
+                }
+            } else {
+                replace(sessionId, entry);
+            }
+            position += entry.length();
+        }
+
+        if (torn) {
+            // Zero the tail so a later scan cannot mistake leftovers for records
+            byte[] zeros = new byte[64 * 1024];
+            for (int i = position; i < buffer.capacity(); i += zeros.length) {
+                buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+            }
+            buffer.force();
+        }
+        writePosition = position;
+    }
+
+    private void open(Path file, int size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private long latestGeneration() throws IOException {
+        long latest = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = LOG_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    latest = Math.max(latest, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void deleteOlderGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = LOG_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) < generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve("sessions." + generation + ".log");
+    }
+
+    private static byte[] encode(byte type, String sessionId, long expiresAt, byte[] state) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = PAYLOAD_PREFIX_BYTES + id.length + state.length;
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+        record.putInt(payloadLength);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(expiresAt);
+        record.putShort((short) id.length);
+        record.put(id);
+        record.put(state);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static long expiresAtMillis(LocalDateTime expiresAt) {
+        return expiresAt != null ? expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Location of a session's latest record; length includes the header
+     */
+    private record IndexEntry(int offset, int length, long expiresAt) {
+    }
+
+    /**
+     * Next generation file being filled by a compaction
+     */
+    private final class Compaction {
+        private final long generation;
+        private final Path tmp;
+        private final FileChannel target;
+        private final long started = System.nanoTime();
+
+        /**
+         * Session to the record copied for it, in the current file and in the new one
+         */
+        private final Map<String, IndexEntry> sources = new HashMap<>();
+        private final Map<String, IndexEntry> targets = new HashMap<>();
+
+        private MappedByteBuffer out;
+        private int position;
+        private boolean moved;
+        private byte[] record = new byte[0];
+
+        private Compaction(long generation, Path tmp, FileChannel target) {
+            this.generation = generation;
+            this.tmp = tmp;
+            this.target = target;
+        }
+
+        private IndexEntry copy(String sessionId, IndexEntry source) {
+            if (record.length < source.length()) {
+                record = new byte[source.length()];
+            }
+            buffer.get(source.offset(), record, 0, source.length());
+            out.put(position, record, 0, source.length());
+            IndexEntry copied = new IndexEntry(position, source.length(), source.expiresAt());
+            position += source.length();
+            sources.put(sessionId, source);
+            targets.put(sessionId, copied);
+            return copied;
+        }
+
+        /**
+         * Closes the file and deletes it unless it was switched to
+         */
+        private void close() {
+            try {
+                target.close();
+                if (!moved) {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                log.warn("Could not clean up mapped log compaction {}: {}", tmp, e.getMessage());
+            }
+        }
+    }
+}
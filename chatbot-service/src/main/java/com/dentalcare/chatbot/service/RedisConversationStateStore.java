@@ -1,61 +1,343 @@
 package com.dentalcare.chatbot.service;
 
 import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Redis-based implementation of ConversationStateStore.
- * 
+ *
  * Provides fast, in-memory session storage with automatic TTL expiration.
  * Activated when 'redis' profile is active.
- * 
+ *
  * Benefits:
  * - Fast read/write operations
  * - Automatic expiration via TTL
  * - Scalable for high-traffic scenarios
+ *
+ * Layout: one hash per session ("chatbot:session:h:{id}"):
+ * - "@v" holds the codec's VALUE_VERSION the values were written with
+ * - "@step", "@created", "@updated", "@expires" hold the header
+ * - "d:{key}" holds one collectedData entry, encoded with ConversationStateCodec
+ *
+ * A save sends only the fields that changed since the state was read, the
+ * removed fields and the TTL refresh as one script call (one round trip,
+ * applied atomically). Every read slides the TTL in the same round trip, so
+ * active sessions do not expire mid-conversation.
+ *
+ * Compatibility across a rolling deploy:
+ * - A hash with a value version this release cannot read is treated as not
+ *   found, and an incremental save to a hash with another version is
+ *   turned into a full save, so versions are never mixed within a hash
+ * - Hashes written before "@v" existed are read as version 1
+ * - Sessions written in the old single-value layout are still read and
+ *   converted on their next save
+ *
+ * expiresAt always reflects the key's TTL: it is derived from the TTL a read
+ * or save has just set, and every save rewrites "@expires" to match.
  */
 @Slf4j
 @Component
 @Profile("redis")
+@Qualifier(ConversationStateStore.BACKEND)
 public class RedisConversationStateStore implements ConversationStateStore {
-    
+
     @Autowired
     private RedisTemplate<String, ConversationState> redisTemplate;
-    
-    private static final String KEY_PREFIX = "chatbot:session:";
-    private static final Duration TTL = Duration.ofMinutes(30);
-    
+
+    @Autowired
+    private ConversationStateCodec codec;
+
+    @Value("${chatbot.session-timeout-minutes:30}")
+    private long sessionTimeoutMinutes;
+
+    private static final String KEY_PREFIX = "chatbot:session:h:";
+    private static final String LEGACY_KEY_PREFIX = "chatbot:session:";
+
+    private static final String VERSION_FIELD = "@v";
+    private static final String STEP_FIELD = "@step";
+    private static final String CREATED_FIELD = "@created";
+    private static final String UPDATED_FIELD = "@updated";
+    private static final String EXPIRES_FIELD = "@expires";
+    private static final String DATA_PREFIX = "d:";
+
+    private static final long MISSING = -1;
+
+    /**
+     * Read by every lookup; the step comes first, as a missing step means no header
+     */
+    private static final List<String> HEADER_FIELDS = List.of(STEP_FIELD, VERSION_FIELD, CREATED_FIELD, UPDATED_FIELD);
+
+    /**
+     * KEYS: hash key, legacy key
+     * ARGV: ttl millis, replace flag, value version, number of fields to set,
+     * field/value pairs, fields to delete
+     * Returns MISSING for an incremental save to a hash that expired, was
+     * evicted or holds another value version, without writing anything; the
+     * caller then saves in full.
+     */
+    private static final RedisScript<Long> SAVE_SCRIPT = RedisScript.of("""
+        if ARGV[2] == '1' then
+          redis.call('DEL', KEYS[1], KEYS[2])
+        elseif redis.call('HGET', KEYS[1], '@v') ~= ARGV[3] then
+          return -1
+        end
+        local sets = tonumber(ARGV[4])
+        redis.call('HSET', KEYS[1], '@v', ARGV[3], unpack(ARGV, 5, 4 + 2 * sets))
+        if #ARGV > 4 + 2 * sets then
+          redis.call('HDEL', KEYS[1], unpack(ARGV, 5 + 2 * sets, #ARGV))
+        end
+        return redis.call('PEXPIRE', KEYS[1], ARGV[1])
+        """, Long.class);
+
     @Override
     public void save(ConversationState state) {
-        String key = KEY_PREFIX + state.getSessionId();
-        redisTemplate.opsForValue().set(key, state, TTL);
-        log.debug("Saved conversation state to Redis: {}", state.getSessionId());
+        ConversationState.Snapshot persisted = state.getPersisted();
+        boolean replace = persisted == null;
+
+        List<byte[]> sets = new ArrayList<>();
+        List<byte[]> deletes = new ArrayList<>();
+        // The script gives the key a full TTL, so the stored expiry moves with it on every save
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl());
+        addField(sets, EXPIRES_FIELD, codec.encodeValue(expiresAt));
+
+        if (replace || persisted.currentState() != state.getCurrentState()) {
+            addField(sets, STEP_FIELD, utf8(state.getCurrentState().name()));
+        }
+        if (replace) {
+            addTime(sets, deletes, CREATED_FIELD, state.getCreatedAt());
+        }
+        if (replace || !equal(persisted.lastUpdated(), state.getLastUpdated())) {
+            addTime(sets, deletes, UPDATED_FIELD, state.getLastUpdated());
+        }
+
+        Map<String, Object> changed = replace ? state.getCollectedData() : persisted.changedData(state);
+        if (changed != null) {
+            changed.forEach((key, value) -> addField(sets, DATA_PREFIX + key, codec.encodeValue(value)));
+        }
+        if (!replace) {
+            persisted.removedKeys(state).forEach(key -> deletes.add(utf8(DATA_PREFIX + key)));
+        }
+
+        Object[] args = new Object[4 + sets.size() + deletes.size()];
+        args[0] = utf8(Long.toString(ttl().toMillis()));
+        args[1] = utf8(replace ? "1" : "0");
+        args[2] = utf8(Integer.toString(ConversationStateCodec.VALUE_VERSION));
+        args[3] = utf8(Integer.toString(sets.size() / 2));
+        int i = 4;
+        for (byte[] arg : sets) {
+            args[i++] = arg;
+        }
+        for (byte[] arg : deletes) {
+            args[i++] = arg;
+        }
+
+        Long result = redisTemplate.execute(SAVE_SCRIPT, RedisSerializer.byteArray(), null,
+            List.of(KEY_PREFIX + state.getSessionId(), LEGACY_KEY_PREFIX + state.getSessionId()), args);
+        if (result != null && result == MISSING) {
+            // Expired, evicted or rewritten with another version since it was read; a patch would
+            // leave a hash without a header or with mixed versions
+            log.debug("Conversation state {} gone or changed in Redis, saving in full", state.getSessionId());
+            state.setPersisted(null);
+            save(state);
+            return;
+        }
+        state.setExpiresAt(expiresAt);
+        state.markPersisted();
+
+        log.debug("Saved conversation state to Redis: {} ({} fields set, {} removed{})",
+            state.getSessionId(), sets.size() / 2, deletes.size(), replace ? ", replaced" : "");
     }
-    
+
     @Override
     public Optional<ConversationState> findBySessionId(String sessionId) {
-        String key = KEY_PREFIX + sessionId;
-        ConversationState state = redisTemplate.opsForValue().get(key);
-        
-        if (state != null) {
-            log.debug("Found conversation state in Redis: {}", sessionId);
-        } else {
-            log.debug("Conversation state not found in Redis: {}", sessionId);
+        byte[] key = utf8(KEY_PREFIX + sessionId);
+        long ttlMillis = ttl().toMillis();
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl());
+        List<Object> results = pipelined(connection -> {
+            connection.hashCommands().hGetAll(key);
+            connection.keyCommands().pExpire(key, ttlMillis);
+        });
+
+        @SuppressWarnings("unchecked")
+        Map<byte[], byte[]> hash = (Map<byte[], byte[]>) results.get(0);
+        if (hash == null || hash.isEmpty()) {
+            return findLegacy(sessionId);
         }
-        
-        return Optional.ofNullable(state);
+
+        Map<String, byte[]> fields = new HashMap<>(hash.size() * 2);
+        hash.forEach((field, value) -> fields.put(new String(field, StandardCharsets.UTF_8), value));
+        return decode(sessionId, fields, expiresAt);
     }
-    
+
+    /**
+     * Reads the header and only the requested collected data fields (HMGET).
+     */
+    @Override
+    public Optional<ConversationState> findBySessionId(String sessionId, Collection<String> keys) {
+        byte[] key = utf8(KEY_PREFIX + sessionId);
+        long ttlMillis = ttl().toMillis();
+
+        List<String> names = new ArrayList<>(HEADER_FIELDS.size() + keys.size());
+        names.addAll(HEADER_FIELDS);
+        keys.forEach(name -> names.add(DATA_PREFIX + name));
+        byte[][] fields = names.stream().map(RedisConversationStateStore::utf8).toArray(byte[][]::new);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl());
+        List<Object> results = pipelined(connection -> {
+            connection.hashCommands().hMGet(key, fields);
+            connection.keyCommands().pExpire(key, ttlMillis);
+        });
+
+        @SuppressWarnings("unchecked")
+        List<byte[]> values = (List<byte[]>) results.get(0);
+        if (values == null || values.get(0) == null) {
+            return findLegacy(sessionId);
+        }
+
+        Map<String, byte[]> found = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            if (values.get(i) != null) {
+                found.put(names.get(i), values.get(i));
+            }
+        }
+        return decode(sessionId, found, expiresAt);
+    }
+
     @Override
     public void deleteExpired() {
         // Redis handles TTL automatically, no manual cleanup needed
         log.debug("Redis TTL handles expiration automatically");
     }
+
+    /**
+     * @param expiresAt When the key expires, given the TTL the read just set
+     */
+    private Optional<ConversationState> decode(String sessionId, Map<String, byte[]> fields, LocalDateTime expiresAt) {
+        if (fields.get(STEP_FIELD) == null) {
+            // Data fields without a header can only be a damaged hash; a new session replaces it
+            log.warn("Conversation state {} has no header in Redis; treating it as not found", sessionId);
+            return Optional.empty();
+        }
+        try {
+            // Hashes written before the version field existed hold version 1 values
+            byte[] versionField = fields.get(VERSION_FIELD);
+            int version = versionField != null
+                ? Integer.parseInt(new String(versionField, StandardCharsets.UTF_8))
+                : ConversationStateCodec.VERSION_1;
+
+            ConversationState state = new ConversationState();
+            state.setSessionId(sessionId);
+            state.setCurrentState(ConversationStep.valueOf(new String(fields.get(STEP_FIELD), StandardCharsets.UTF_8)));
+            state.setCreatedAt(readTime(fields.get(CREATED_FIELD), version));
+            state.setLastUpdated(readTime(fields.get(UPDATED_FIELD), version));
+            state.setExpiresAt(expiresAt);
+
+            Map<String, Object> data = new HashMap<>();
+            fields.forEach((field, value) -> {
+                if (field.startsWith(DATA_PREFIX)) {
+                    data.put(field.substring(DATA_PREFIX.length()), codec.decodeValue(value, version));
+                }
+            });
+            state.setCollectedData(data);
+            state.markPersisted();
+
+            log.debug("Found conversation state in Redis: {}", sessionId);
+            return Optional.of(state);
+        } catch (SerializationException | IllegalArgumentException e) {
+            // Written by a newer release (rolling deploy); treat as a new session rather than fail every turn
+            log.warn("Unreadable conversation state {}: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads a session stored as a single value by earlier releases.
+     * It has no snapshot, so its next save rewrites it as a hash.
+     */
+    private Optional<ConversationState> findLegacy(String sessionId) {
+        ConversationState state;
+        try {
+            state = redisTemplate.opsForValue().get(LEGACY_KEY_PREFIX + sessionId);
+        } catch (SerializationException e) {
+            log.warn("Unreadable conversation state {}: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        }
+
+        if (state != null) {
+            log.debug("Found legacy conversation state in Redis: {}", sessionId);
+        } else {
+            log.debug("Conversation state not found in Redis: {}", sessionId);
+        }
+
+        return Optional.ofNullable(state);
+    }
+
+    /**
+     * Sends the commands in one round trip and returns their raw replies.
+     */
+    private List<Object> pipelined(Consumer<RedisConnection> commands) {
+        return redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.openPipeline();
+            try {
+                commands.accept(connection);
+            } catch (RuntimeException e) {
+                connection.closePipeline();
+                throw e;
+            }
+            return connection.closePipeline();
+        });
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(sessionTimeoutMinutes);
+    }
+
+    private void addTime(List<byte[]> sets, List<byte[]> deletes, String field, LocalDateTime time) {
+        if (time != null) {
+            addField(sets, field, codec.encodeValue(time));
+        } else {
+            deletes.add(utf8(field));
+        }
+    }
+
+    private LocalDateTime readTime(byte[] value, int version) {
+        return value != null ? (LocalDateTime) codec.decodeValue(value, version) : null;
+    }
+
+    private static void addField(List<byte[]> sets, String field, byte[] value) {
+        sets.add(utf8(field));
+        sets.add(value);
+    }
+
+    private static boolean equal(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 }
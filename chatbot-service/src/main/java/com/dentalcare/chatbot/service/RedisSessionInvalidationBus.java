@@ -0,0 +1,87 @@
+package com.dentalcare.chatbot.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub implementation of SessionInvalidationBus.
+ *
+ * Messages have the form "nodeId:sessionId"; each node ignores its own.
+ * Activated with {@code chatbot.state-store.l1.invalidation=redis}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "chatbot.state-store.l1", name = "invalidation", havingValue = "redis")
+public class RedisSessionInvalidationBus implements SessionInvalidationBus {
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${chatbot.state-store.l1.channel:chatbot:session:invalidate}")
+    private String channel;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    private RedisMessageListenerContainer container;
+
+    @PostConstruct
+    public void init() {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> onMessage(
+            new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        container.start();
+
+        log.info("Session invalidation bus listening on Redis channel: {}", channel);
+    }
+
+    @Override
+    public void publish(String sessionId) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + ":" + sessionId);
+        } catch (Exception e) {
+            // Other nodes fall back to their L1 TTL
+            log.warn("Failed to publish session invalidation for {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private void onMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0 || message.startsWith(nodeId + ":")) {
+            return;
+        }
+        String sessionId = message.substring(separator + 1);
+        listeners.forEach(listener -> listener.accept(sessionId));
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        container.destroy();
+    }
+}
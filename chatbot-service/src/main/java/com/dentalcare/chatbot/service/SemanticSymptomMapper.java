@@ -0,0 +1,191 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.SpecializationScore;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symptom mapper that finds the curated example phrases closest to the
+ * patient's description, instead of requiring exact keywords.
+ *
+ * - Example phrases per specialization come from
+ *   {@code chatbot.semantic.examples} (specialization TAB phrase), so
+ *   "my jaw clicks when I chew" lands near "clicking jaw joint when eating"
+ * - Texts are embedded by SubwordEmbedder: words, character n-grams and the
+ *   synonym groups in {@code chatbot.semantic.synonyms}, all on the CPU
+ * - Examples are held in a CosineLshIndex; a query probes it for the
+ *   {@code chatbot.semantic.neighbours} nearest examples
+ * - A specialization scores the similarity of its closest example among
+ *   them; scores under {@code chatbot.semantic.min-similarity} are dropped
+ *   and no match at all falls back to general_dentist
+ *
+ * Active with the 'semantic' profile; SymptomMapperImpl otherwise.
+ */
+@Slf4j
+@Component
+@Profile("semantic")
+public class SemanticSymptomMapper implements SymptomMapper {
+
+    private static final String DEFAULT_SPECIALIZATION = "general_dentist";
+
+    private static final int DIMENSIONS = 128;
+
+    private static final int TABLES = 8;
+
+    private static final int BITS = 6;
+
+    private static final long SEED = 0x5EED;
+
+    @Value("${chatbot.semantic.examples:classpath:semantic/symptom-examples.tsv}")
+    private Resource examples;
+
+    @Value("${chatbot.semantic.synonyms:classpath:semantic/synonyms.txt}")
+    private Resource synonyms;
+
+    @Value("${chatbot.semantic.min-similarity:0.35}")
+    private double minSimilarity;
+
+    @Value("${chatbot.semantic.neighbours:5}")
+    private int neighbours;
+
+    private SubwordEmbedder embedder;
+
+    private CosineLshIndex<Example> index;
+
+    /**
+     * @param specialization Specialization the phrase belongs to
+     * @param phrase Curated example phrase
+     */
+    record Example(String specialization, String phrase) {
+    }
+
+    /**
+     * Loads the synonyms and embeds every example; fails startup if either
+     * is missing or the settings are invalid.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (neighbours < 1) {
+            throw new IllegalArgumentException("chatbot.semantic.neighbours must be at least 1, was " + neighbours);
+        }
+        embedder = new SubwordEmbedder(DIMENSIONS, readSynonyms(synonyms));
+
+        List<Example> loaded = readExamples(examples);
+        List<float[]> vectors = new ArrayList<>(loaded.size());
+        for (Example example : loaded) {
+            vectors.add(embedder.embed(example.phrase()));
+        }
+        index = new CosineLshIndex<>(vectors, loaded, TABLES, BITS, SEED);
+
+        log.info("Semantic symptom mapper initialized with {} examples from {} ({} KB index)",
+            index.size(), examples.getDescription(), index.memoryBytes() / 1024);
+    }
+
+    @Override
+    public String mapToSpecialization(String symptoms) {
+        log.debug("Mapping symptoms to specialization: {}", symptoms);
+
+        List<CosineLshIndex.Neighbor<Example>> nearest = nearest(symptoms);
+        if (nearest.isEmpty()) {
+            log.info("No similar example, defaulting to {}", DEFAULT_SPECIALIZATION);
+            return DEFAULT_SPECIALIZATION;
+        }
+
+        CosineLshIndex.Neighbor<Example> best = nearest.get(0);
+        log.info("Mapped to {} (similarity {} to '{}')",
+            best.value().specialization(), best.similarity(), best.value().phrase());
+        return best.value().specialization();
+    }
+
+    /**
+     * Ranks specializations by the similarity of their closest example.
+     */
+    @Override
+    public List<SpecializationScore> rankSpecializations(String symptoms) {
+        // Neighbours come most similar first, so the first hit per specialization is its best
+        Map<String, Double> best = new LinkedHashMap<>();
+        for (CosineLshIndex.Neighbor<Example> neighbor : nearest(symptoms)) {
+            best.putIfAbsent(neighbor.value().specialization(), (double) neighbor.similarity());
+        }
+
+        List<SpecializationScore> ranked = new ArrayList<>();
+        best.forEach((specialization, similarity) -> ranked.add(new SpecializationScore(specialization, similarity)));
+        ranked.sort(Comparator.comparingDouble(SpecializationScore::score).reversed());
+        return ranked;
+    }
+
+    private List<CosineLshIndex.Neighbor<Example>> nearest(String symptoms) {
+        List<CosineLshIndex.Neighbor<Example>> nearest = new ArrayList<>();
+        for (CosineLshIndex.Neighbor<Example> neighbor : index.search(embedder.embed(symptoms), neighbours)) {
+            if (neighbor.similarity() >= minSimilarity) {
+                nearest.add(neighbor);
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Reads "specialization TAB phrase" lines; blank lines and # comments are skipped.
+     */
+    static List<Example> readExamples(Resource resource) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", 2);
+                if (fields.length != 2 || fields[0].isBlank() || fields[1].isBlank()) {
+                    throw new IllegalArgumentException(resource.getDescription() + " line " + number
+                        + ": expected specialization<TAB>phrase");
+                }
+                examples.add(new Example(fields[0].strip(), fields[1].strip()));
+            }
+        }
+        if (examples.isEmpty()) {
+            throw new IllegalArgumentException("No examples in " + resource.getDescription());
+        }
+        return examples;
+    }
+
+    /**
+     * Reads "concept: word, word, ..." lines into a word to concept map.
+     */
+    static Map<String, String> readSynonyms(Resource resource) throws IOException {
+        Map<String, String> concepts = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(':');
+                if (line.isBlank() || line.startsWith("#") || colon < 0) {
+                    continue;
+                }
+                String concept = line.substring(0, colon).strip();
+                for (String word : line.substring(colon + 1).split(",")) {
+                    if (!word.isBlank()) {
+                        concepts.put(word.strip().toLowerCase(), concept);
+                    }
+                }
+            }
+        }
+        return concepts;
+    }
+}
@@ -0,0 +1,26 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts session changes between nodes so near caches stay coherent.
+ *
+ * Extension point: Can be implemented with any pub/sub transport
+ * (Redis, Postgres LISTEN/NOTIFY, etc.)
+ */
+public interface SessionInvalidationBus {
+
+    /**
+     * Announces that a session was changed on this node.
+     *
+     * @param sessionId The session identifier
+     */
+    void publish(String sessionId);
+
+    /**
+     * Registers a listener for sessions changed on other nodes.
+     *
+     * @param listener Called with the session ID of each remote change
+     */
+    void subscribe(Consumer<String> listener);
+}
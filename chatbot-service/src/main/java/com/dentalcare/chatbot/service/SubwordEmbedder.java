@@ -0,0 +1,174 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Embeds short texts into dense unit vectors on the CPU, without a model file.
+ *
+ * Each feature of the text is hashed to a pseudo-random ±1 vector
+ * (splitmix64 stream seeded by the feature hash) and the weighted sum is
+ * normalised. Texts sharing features point in similar directions, so
+ * cosine similarity measures their overlap:
+ * - whole words (weight 1), adjacent word pairs (0.5)
+ * - character 3- and 4-grams of each word, padded with '<' and '>', sharing
+ *   weight 1 per word, so inflections and typos stay close ("chew" / "chewing")
+ * - a concept per synonym group (weight 2), so "chipped" and "cracked"
+ *   land near each other although they share no letters
+ *
+ * Stop words are skipped. Vectors are computed on the fly, so nothing but
+ * the synonym table is held in memory.
+ *
+ * Immutable and thread-safe.
+ */
+final class SubwordEmbedder {
+
+    private static final long WORD = 0x9E3779B97F4A7C15L;
+    private static final long PAIR = 0xC2B2AE3D27D4EB4FL;
+    private static final long NGRAM = 0x165667B19E3779F9L;
+    private static final long CONCEPT = 0x27D4EB2F165667C5L;
+
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float PAIR_WEIGHT = 0.5f;
+    private static final float NGRAMS_WEIGHT = 1.0f;
+    private static final float CONCEPT_WEIGHT = 2.0f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "at", "be", "been", "but", "by", "can", "do", "does", "for", "from",
+        "had", "has", "have", "i", "i'm", "im", "in", "is", "it", "its", "me", "my", "of", "on", "or",
+        "so", "that", "the", "there", "this", "to", "very", "was", "when", "with", "you");
+
+    private static final String[] SUFFIXES = {"s", "es", "ed", "er", "ing", "y"};
+
+    private final int dimensions;
+
+    /**
+     * Synonym group of each word
+     */
+    private final Map<String, String> concepts;
+
+    /**
+     * @param dimensions Vector size, a multiple of 64
+     * @param concepts Synonym group name of each word
+     */
+    SubwordEmbedder(int dimensions, Map<String, String> concepts) {
+        if (dimensions <= 0 || dimensions % 64 != 0) {
+            throw new IllegalArgumentException("dimensions must be a positive multiple of 64: " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.concepts = Map.copyOf(concepts);
+    }
+
+    /**
+     * @return Unit vector, or all zeros if the text has no content words
+     */
+    float[] embed(CharSequence text) {
+        float[] vector = new float[dimensions];
+        List<String> words = words(text);
+
+        String previous = null;
+        for (String word : words) {
+            add(vector, hash(WORD, word, 0, word.length()), WORD_WEIGHT);
+            if (previous != null) {
+                add(vector, hash(PAIR, previous, 0, previous.length()) ^ hash(WORD, word, 0, word.length()), PAIR_WEIGHT);
+            }
+            previous = word;
+
+            String padded = "<" + word + ">";
+            int ngrams = 0;
+            for (int n = 3; n <= 4; n++) {
+                ngrams += Math.max(0, padded.length() - n + 1);
+            }
+            for (int n = 3; n <= 4; n++) {
+                for (int start = 0; start + n <= padded.length(); start++) {
+                    add(vector, hash(NGRAM + n, padded, start, start + n), NGRAMS_WEIGHT / ngrams);
+                }
+            }
+
+            String concept = concept(word);
+            if (concept != null) {
+                add(vector, hash(CONCEPT, concept, 0, concept.length()), CONCEPT_WEIGHT);
+            }
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Synonym group of the word or of its stem without a common English suffix
+     */
+    private String concept(String word) {
+        String concept = concepts.get(word);
+        for (String suffix : SUFFIXES) {
+            if (concept == null && word.length() > suffix.length() + 2 && word.endsWith(suffix)) {
+                concept = concepts.get(word.substring(0, word.length() - suffix.length()));
+            }
+        }
+        return concept;
+    }
+
+    /**
+     * Lowercased content words (letters, digits and inner apostrophes)
+     */
+    private static List<String> words(CharSequence text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c) || (c == '\'' && !word.isEmpty())) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                String candidate = word.toString();
+                word.setLength(0);
+                if (!STOP_WORDS.contains(candidate)) {
+                    words.add(candidate);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Adds weight times the feature's ±1 vector.
+     */
+    private void add(float[] vector, long feature, float weight) {
+        long state = feature;
+        for (int block = 0; block < dimensions; block += 64) {
+            state += 0x9E3779B97F4A7C15L;
+            long bits = mix(state);
+            for (int i = 0; i < 64; i++) {
+                vector[block + i] += ((bits >>> i) & 1) == 0 ? weight : -weight;
+            }
+        }
+    }
+
+    private static long hash(long seed, CharSequence text, int from, int to) {
+        long hash = seed;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
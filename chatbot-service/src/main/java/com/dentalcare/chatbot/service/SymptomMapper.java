@@ -1,5 +1,9 @@
 package com.dentalcare.chatbot.service;
 
+import com.dentalcare.chatbot.model.SpecializationScore;
+
+import java.util.List;
+
 /**
  * Interface for mapping patient symptoms to dentist specializations.
  * 
@@ -17,4 +21,19 @@ public interface SymptomMapper {
      * @return Specialization code (e.g., "endodontist", "orthodontist")
      */
     String mapToSpecialization(String symptoms);
+    
+    /**
+     * Scores the specializations that fit the symptoms, best first.
+     * 
+     * The default is for mappers that only pick one specialization: it
+     * reports mapToSpecialization() with score 1, so it is never empty and
+     * reports the fallback specialization when nothing matched.
+     * 
+     * @param symptoms Patient's symptom description
+     * @return Matching specializations, best first; empty if none matched,
+     *         except with the default implementation
+     */
+    default List<SpecializationScore> rankSpecializations(String symptoms) {
+        return List.of(new SpecializationScore(mapToSpecialization(symptoms), 1.0));
+    }
 }
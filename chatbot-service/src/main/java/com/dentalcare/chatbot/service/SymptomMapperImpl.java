@@ -1,118 +1,366 @@
 package com.dentalcare.chatbot.service;
 
+import com.dentalcare.chatbot.model.SpecializationScore;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Keyword-based symptom to specialization mapper.
  * 
  * Maps patient symptoms to appropriate dental specializations using keyword matching.
- * Configuration can be loaded from YAML file for easy updates without code changes.
+ * Configuration is loaded from symptom-mapping.yml for easy updates without code changes.
  * 
- * Specialization mappings:
+ * Specialization mappings (see symptom-mapping.yml):
  * - pain/ache → endodontist
  * - braces/alignment → orthodontist
  * - gum issues → periodontist
  * - crown/filling → prosthodontist
  * - cosmetic → cosmetic_dentist
  * - cleaning/checkup → general_dentist
+ * 
+ * Matching:
+ * - All keywords are compiled into one KeywordAutomaton: whole words and
+ *   multi-word phrases ("root canal"), "pain*" for word prefixes
+ * - Each keyword has a weight (default 1); every occurrence adds its weight
+ *   to its specialization and the highest total wins, ties going to the
+ *   specialization listed first; no match falls back to the default
+ * 
+ * Typo tolerance: words that match no keyword are looked up in BK-trees
+ * of the single-word keywords, prefix stems of 6+ letters and two-word
+ * phrases (joined),
+ * together with pairs of adjacent words ("tooth ake" → toothache,
+ * "root canel" → root canal):
+ * - Up to 1 edit for words under 8 letters, 2 from 8 letters; the first
+ *   letter must match (there is one tree per first letter), which keeps
+ *   ordinary words from hitting short keywords
+ * - A fuzzy match counts 0.8 of the keyword's weight, so an exact match
+ *   of equal weight wins; a phrase typed as one word ("rootcanal") is
+ *   exact and counts in full
+ * - Only the first 32 words are looked up, bounding the cost of long
+ *   messages to a few microseconds
+ * - Every fuzzy match is logged with its term and distance; the typed
+ *   words are patient text and only logged at DEBUG
+ * 
+ * Reloading: when the config is a file, it is checked for changes every
+ * {@code chatbot.symptom-mapping-reload-ms}. A changed file is compiled
+ * off the request path and swapped in atomically; a file that fails to
+ * parse is logged and the previous rules stay active.
+ * 
+ * Active unless the 'semantic' profile selects SemanticSymptomMapper.
  */
 @Slf4j
 @Component
+@Profile("!semantic")
 public class SymptomMapperImpl implements SymptomMapper {
     
+    private static final String DEFAULT_SPECIALIZATION = "general_dentist";
+    
+    private static final double FUZZY_WEIGHT = 0.8;
+    
+    private static final int MIN_FUZZY_LENGTH = 4;
+    
+    /**
+     * Shorter stems are a typo away from too many ordinary words
+     * ("paid" → pain*, "spain" and "stair" → stain*)
+     */
+    private static final int MIN_FUZZY_STEM_LENGTH = 6;
+    
+    private static final int MAX_FUZZY_WORDS = 32;
+    
     @Value("${chatbot.symptom-mapping-config:classpath:symptom-mapping.yml}")
     private Resource mappingConfig;
     
-    private Map<String, List<String>> specializationKeywords;
+    private final AtomicReference<Rules> rules = new AtomicReference<>();
+    
+    private long loadedModified;
     
     /**
-     * Initializes keyword mappings.
-     * TODO: Load from YAML config file for production use.
+     * Compiled mapping config; immutable, replaced as a whole on reload.
+     * 
+     * @param matcher Keyword automaton labelled with specialization indexes
+     * @param specializations Specializations in config order
+     * @param fallback Specialization used when nothing matches
+     * @param fuzzy Fuzzy lookup terms by first letter
+     * @param words Single-word keywords, which never need a fuzzy lookup
+     * @param prefixes Prefix keywords, whose matches never need a fuzzy lookup
+     */
+    record Rules(KeywordAutomaton<Integer> matcher, List<String> specializations, String fallback,
+                 Map<Character, BkTree<Keyword>> fuzzy, Set<String> words, List<String> prefixes) {
+    }
+    
+    /**
+     * @param specialization Index into Rules.specializations
+     * @param weight Keyword weight
+     * @param phrase Whether the term is a two-word phrase, which the matcher
+     *               finds whenever the two words are typed exactly
+     */
+    record Keyword(int specialization, double weight, boolean phrase) {
+    }
+    
+    /**
+     * Loads and compiles the mapping config; fails startup if it is invalid.
      */
     @PostConstruct
-    public void init() {
-        // Load from config file for easy updates without code changes
-        specializationKeywords = loadMappingConfig();
-        log.info("Symptom mapper initialized with {} specializations", specializationKeywords.size());
+    public void init() throws IOException {
+        loadedModified = lastModified();
+        rules.set(compile(mappingConfig));
+        log.info("Symptom mapper initialized with {} specializations from {}",
+            rules.get().specializations().size(), mappingConfig.getDescription());
     }
     
     @Override
     public String mapToSpecialization(String symptoms) {
-        String lowerSymptoms = symptoms.toLowerCase();
+        Rules current = rules.get();
         
         log.debug("Mapping symptoms to specialization: {}", symptoms);
         
-        // Check endodontist keywords
-        if (containsAny(lowerSymptoms, Arrays.asList("pain", "ache", "toothache", "sensitivity", "nerve"))) {
-            log.info("Mapped to endodontist");
-            return "endodontist";
-        }
+        double[] scores = score(current, symptoms);
         
-        // Check orthodontist keywords
-        if (containsAny(lowerSymptoms, Arrays.asList("braces", "alignment", "crooked", "straighten", "misaligned"))) {
-            log.info("Mapped to orthodontist");
-            return "orthodontist";
+        int best = -1;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0 && (best < 0 || scores[i] > scores[best])) {
+                best = i;
+            }
         }
         
-        // Check periodontist keywords
-        if (containsAny(lowerSymptoms, Arrays.asList("gum", "bleeding", "swollen", "periodontal", "gums"))) {
-            log.info("Mapped to periodontist");
-            return "periodontist";
+        if (best < 0) {
+            log.info("No specific match, defaulting to {}", current.fallback());
+            return current.fallback();
         }
         
-        // Check prosthodontist keywords
-        if (containsAny(lowerSymptoms, Arrays.asList("crown", "filling", "bridge", "denture", "implant"))) {
-            log.info("Mapped to prosthodontist");
-            return "prosthodontist";
-        }
+        String specialization = current.specializations().get(best);
+        log.info("Mapped to {} (score {})", specialization, scores[best]);
+        return specialization;
+    }
+    
+    /**
+     * Ranks specializations by keyword score (sum of matched keyword weights).
+     */
+    @Override
+    public List<SpecializationScore> rankSpecializations(String symptoms) {
+        Rules current = rules.get();
+        double[] scores = score(current, symptoms);
         
-        // Check cosmetic dentist keywords
-        if (containsAny(lowerSymptoms, Arrays.asList("whitening", "cosmetic", "veneer", "smile", "aesthetic"))) {
-            log.info("Mapped to cosmetic_dentist");
-            return "cosmetic_dentist";
+        List<SpecializationScore> ranked = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0) {
+                ranked.add(new SpecializationScore(current.specializations().get(i), scores[i]));
+            }
+        }
+        // Stable sort keeps config order for ties
+        ranked.sort(Comparator.comparingDouble(SpecializationScore::score).reversed());
+        return ranked;
+    }
+    
+    private double[] score(Rules current, String symptoms) {
+        double[] scores = new double[current.specializations().size()];
+        current.matcher().scan(symptoms, (specialization, weight) -> scores[specialization] += weight);
+        addFuzzyMatches(current, symptoms, scores);
+        return scores;
+    }
+    
+    /**
+     * Looks up words that match no keyword, then adjacent pairs of them, in the BK-tree.
+     */
+    private void addFuzzyMatches(Rules current, String symptoms, double[] scores) {
+        List<String> unknown = new ArrayList<>();
+        boolean[] matched = new boolean[MAX_FUZZY_WORDS];
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= symptoms.length() && unknown.size() < MAX_FUZZY_WORDS; i++) {
+            char c = i < symptoms.length() ? symptoms.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                String candidate = word.toString();
+                word.setLength(0);
+                if (isKeyword(current, candidate)) {
+                    // Separates the words around it, so they are never joined
+                    unknown.add(null);
+                } else {
+                    unknown.add(candidate);
+                }
+            }
         }
         
-        // Check general dentist keywords
-        if (containsAny(lowerSymptoms, Arrays.asList("cleaning", "checkup", "routine", "exam", "cavity"))) {
-            log.info("Mapped to general_dentist");
-            return "general_dentist";
+        for (int i = 0; i < unknown.size(); i++) {
+            matched[i] = unknown.get(i) != null && unknown.get(i).length() >= MIN_FUZZY_LENGTH
+                && addFuzzyMatch(current, unknown.get(i), unknown.get(i), false, scores);
+        }
+        for (int i = 0; i + 1 < unknown.size(); i++) {
+            if (unknown.get(i) != null && unknown.get(i + 1) != null && !matched[i] && !matched[i + 1]) {
+                String joined = unknown.get(i) + unknown.get(i + 1);
+                if (addFuzzyMatch(current, unknown.get(i) + " " + unknown.get(i + 1), joined, true, scores)) {
+                    matched[i + 1] = true;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param pair Whether query joins two typed words
+     */
+    private boolean addFuzzyMatch(Rules current, String typed, String query, boolean pair, double[] scores) {
+        BkTree<Keyword> terms = current.fuzzy().get(query.charAt(0));
+        if (terms == null) {
+            return false;
+        }
+        BkTree.Match<Keyword> match = terms.closest(query, query.length() >= 8 ? 2 : 1);
+        if (match == null) {
+            return false;
+        }
+        Keyword keyword = match.value();
+        if (match.distance() == 0 && pair && keyword.phrase()) {
+            // An exactly typed phrase ("root canal"), already counted by the matcher
+            return true;
         }
         
-        // Default to general dentist
-        log.info("No specific match, defaulting to general_dentist");
-        return "general_dentist";
+        // Otherwise an exact hit is a phrase typed as one word ("rootcanal"), which the matcher never sees
+        scores[keyword.specialization()] += keyword.weight() * (match.distance() == 0 ? 1.0 : FUZZY_WEIGHT);
+        log.info("Fuzzy symptom match: '{}' (distance {}, {})",
+            match.term(), match.distance(), current.specializations().get(keyword.specialization()));
+        log.debug("Fuzzy symptom match typed as '{}'", typed);
+        return true;
+    }
+    
+    private static boolean isKeyword(Rules current, String word) {
+        if (current.words().contains(word)) {
+            return true;
+        }
+        for (String prefix : current.prefixes()) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
-     * Checks if text contains any of the keywords.
+     * Recompiles the mapping config if its file changed since it was loaded.
+     * Classpath resources inside a jar cannot change and are not checked.
      */
-    private boolean containsAny(String text, List<String> keywords) {
-        return keywords.stream().anyMatch(text::contains);
+    @Scheduled(fixedDelayString = "${chatbot.symptom-mapping-reload-ms:10000}")
+    public void reloadIfChanged() {
+        long modified = lastModified();
+        if (modified == loadedModified) {
+            return;
+        }
+        
+        try {
+            Rules reloaded = compile(mappingConfig);
+            rules.set(reloaded);
+            log.info("Reloaded symptom mapping config {} ({} specializations)",
+                mappingConfig.getDescription(), reloaded.specializations().size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Invalid symptom mapping config {}; keeping the previous mappings: {}",
+                mappingConfig.getDescription(), e.getMessage());
+        }
+        // Do not retry a broken file every tick; wait for the next edit
+        loadedModified = modified;
     }
     
     /**
-     * Loads mapping configuration.
-     * TODO: Implement YAML parsing for production use.
+     * Parses and compiles a mapping config.
      * 
-     * This allows updating mappings without code changes.
+     * Format: {@code specializations.<name>.keywords} lists entries that are
+     * either a keyword or {@code {keyword: ..., weight: ...}}; an optional
+     * top-level {@code default} names the fallback specialization.
      */
-    private Map<String, List<String>> loadMappingConfig() {
-        // Hardcoded for now, can be loaded from YAML in production
-        return Map.of(
-            "endodontist", Arrays.asList("pain", "ache", "toothache", "sensitivity", "nerve"),
-            "orthodontist", Arrays.asList("braces", "alignment", "crooked", "straighten", "misaligned"),
-            "periodontist", Arrays.asList("gum", "bleeding", "swollen", "periodontal", "gums"),
-            "prosthodontist", Arrays.asList("crown", "filling", "bridge", "denture", "implant"),
-            "cosmetic_dentist", Arrays.asList("whitening", "cosmetic", "veneer", "smile", "aesthetic"),
-            "general_dentist", Arrays.asList("cleaning", "checkup", "routine", "exam", "cavity")
-        );
+    static Rules compile(Resource config) throws IOException {
+        Map<String, Object> root;
+        try (InputStream in = config.getInputStream()) {
+            root = new Yaml().load(in);
+        } catch (YAMLException e) {
+            throw new IllegalArgumentException("Unparseable YAML: " + e.getMessage(), e);
+        }
+        if (root == null || !(root.get("specializations") instanceof Map<?, ?> specializations) || specializations.isEmpty()) {
+            throw new IllegalArgumentException("No 'specializations' section");
+        }
+        
+        KeywordAutomaton.Builder<Integer> matcher = KeywordAutomaton.builder();
+        Map<String, Keyword> words = new LinkedHashMap<>();
+        Map<String, Keyword> fuzzy = new LinkedHashMap<>();
+        List<String> prefixes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<?, ?> entry : specializations.entrySet()) {
+            String name = String.valueOf(entry.getKey());
+            if (!(entry.getValue() instanceof Map<?, ?> body) || !(body.get("keywords") instanceof List<?> keywords)
+                    || keywords.isEmpty()) {
+                throw new IllegalArgumentException("Specialization '" + name + "' has no keywords");
+            }
+            
+            int index = names.size();
+            names.add(name);
+            for (Object item : keywords) {
+                String keyword;
+                double weight;
+                if (item instanceof Map<?, ?> weighted) {
+                    if (weighted.get("keyword") == null) {
+                        throw new IllegalArgumentException("Specialization '" + name + "' has a weighted entry without 'keyword'");
+                    }
+                    keyword = String.valueOf(weighted.get("keyword"));
+                    weight = weight(name, weighted.get("weight"));
+                } else {
+                    keyword = String.valueOf(item);
+                    weight = 1.0;
+                }
+                matcher.add(keyword, index, weight);
+                
+                String word = keyword.strip().toLowerCase();
+                boolean stem = word.endsWith("*");
+                if (stem) {
+                    word = word.substring(0, word.length() - 1);
+                    prefixes.add(word);
+                } else if (word.chars().allMatch(Character::isLetterOrDigit)) {
+                    words.putIfAbsent(word, new Keyword(index, weight, false));
+                }
+                String[] parts = word.split("[^\\p{L}\\p{N}]+");
+                int minLength = stem ? MIN_FUZZY_STEM_LENGTH : MIN_FUZZY_LENGTH;
+                if (parts.length <= 2 && String.join("", parts).length() >= minLength) {
+                    fuzzy.putIfAbsent(String.join("", parts), new Keyword(index, weight, parts.length == 2));
+                }
+            }
+        }
+        
+        String fallback = root.get("default") != null ? String.valueOf(root.get("default")) : DEFAULT_SPECIALIZATION;
+        Map<Character, Map<String, Keyword>> byLetter = new HashMap<>();
+        fuzzy.forEach((term, keyword) -> byLetter.computeIfAbsent(term.charAt(0), letter -> new LinkedHashMap<>()).put(term, keyword));
+        Map<Character, BkTree<Keyword>> trees = new HashMap<>();
+        byLetter.forEach((letter, terms) -> trees.put(letter, new BkTree<>(terms)));
+        
+        return new Rules(matcher.build(), List.copyOf(names), fallback,
+            Map.copyOf(trees), Set.copyOf(words.keySet()), List.copyOf(prefixes));
+    }
+    
+    private static double weight(String specialization, Object weight) {
+        if (!(weight instanceof Number number) || number.doubleValue() <= 0) {
+            throw new IllegalArgumentException("Specialization '" + specialization + "' has a keyword without a positive weight");
+        }
+        return number.doubleValue();
+    }
+    
+    private long lastModified() {
+        try {
+            return mappingConfig.isFile() ? mappingConfig.lastModified() : 0;
+        } catch (IOException e) {
+            return loadedModified;
+        }
     }
 }
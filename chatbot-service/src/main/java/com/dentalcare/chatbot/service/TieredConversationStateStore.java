@@ -0,0 +1,229 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Two-tier implementation of ConversationStateStore.
+ *
+ * Keeps recently active sessions in a bounded in-process L1 in front of the
+ * backing store (database or Redis, whichever profile is active).
+ * Activated with {@code chatbot.state-store.l1.enabled=true}.
+ *
+ * Behaviour:
+ * - Reads are served from L1 and fall through to the backend on a miss
+ * - Writes go to the backend first (write-through), then to L1
+ * - A copy read from the backend is only cached if no save or remote
+ *   invalidation of that session landed during the read; otherwise a
+ *   stale copy could outlive the invalidation
+ * - Each write is announced on the SessionInvalidationBus so other nodes
+ *   drop their copy; without a bus, L1 should only be used on a single node
+ *   or with sticky sessions
+ * - L1 is bounded by an estimated byte weight, not by entry count
+ * - An entry expires when its session does, or after expire-after-access
+ *   without reads, whichever comes first; Caffeine tracks these deadlines
+ *   on its timing wheel, so nothing scans the cache for expired sessions
+ *
+ * Hit/miss counters are published as {@code cache.*} metrics tagged with
+ * {@code cache=conversation-state.l1}, plus a
+ * {@code chatbot.state-store.l1.hit-ratio} gauge.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "chatbot.state-store.l1", name = "enabled", havingValue = "true")
+public class TieredConversationStateStore implements ConversationStateStore {
+
+    @Autowired
+    @Qualifier(ConversationStateStore.BACKEND)
+    private ConversationStateStore backend;
+
+    @Autowired(required = false)
+    private SessionInvalidationBus invalidationBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chatbot.state-store.l1.max-weight-bytes:67108864}")
+    private long maxWeightBytes;
+
+    @Value("${chatbot.state-store.l1.expire-after-access:5m}")
+    private Duration expireAfterAccess;
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private Cache<String, ConversationState> l1;
+
+    /**
+     * Bumped (per hash stripe of the session ID) after every backend write
+     * and remote invalidation
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @PostConstruct
+    public void init() {
+        l1 = Caffeine.newBuilder()
+            .maximumWeight(maxWeightBytes)
+            .weigher((String sessionId, ConversationState state) -> estimateWeight(state))
+            .expireAfter(new SessionExpiry(expireAfterAccess.toNanos()))
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "conversation-state.l1");
+        Gauge.builder("chatbot.state-store.l1.hit-ratio", l1, cache -> cache.stats().hitRate())
+            .description("Fraction of session lookups served from the in-process L1")
+            .register(meterRegistry);
+
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(this::invalidate);
+        } else {
+            log.warn("No SessionInvalidationBus configured; L1 is only coherent on a single node");
+        }
+
+        log.info("Tiered conversation state store initialized (backend={}, maxWeight={} bytes, expireAfterAccess={})",
+            backend.getClass().getSimpleName(), maxWeightBytes, expireAfterAccess);
+    }
+
+    @Override
+    public void save(ConversationState state) {
+        backend.save(state);
+        generations.incrementAndGet(stripe(state.getSessionId()));
+        l1.put(state.getSessionId(), state.copy());
+
+        if (invalidationBus != null) {
+            invalidationBus.publish(state.getSessionId());
+        }
+    }
+
+    @Override
+    public Optional<ConversationState> findBySessionId(String sessionId) {
+        ConversationState cached = l1.getIfPresent(sessionId);
+        if (cached != null) {
+            // Callers mutate the state before saving it, so never hand out the cached instance
+            return Optional.of(cached.copy());
+        }
+
+        int stripe = stripe(sessionId);
+        long generation = generations.get(stripe);
+        Optional<ConversationState> state = backend.findBySessionId(sessionId);
+        state.ifPresent(found -> l1.asMap().compute(sessionId, (id, current) -> {
+            // Under the entry's lock: an invalidation has either bumped the generation or will remove this copy
+            if (current != null || generations.get(stripe) != generation) {
+                return current;
+            }
+            return found.copy();
+        }));
+        return state;
+    }
+
+    /**
+     * Drops a session changed on another node.
+     */
+    private void invalidate(String sessionId) {
+        generations.incrementAndGet(stripe(sessionId));
+        l1.invalidate(sessionId);
+    }
+
+    private static int stripe(String sessionId) {
+        return (sessionId.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    @Override
+    public void deleteExpired() {
+        // The backend schedules its own cleanup; L1 drops expired copies as their deadline passes
+        l1.cleanUp();
+    }
+
+    /**
+     * Expires an entry at the session's own expiry, or after expireAfterAccess
+     * without reads, whichever comes first. A save slides both deadlines.
+     */
+    private record SessionExpiry(long accessNanos) implements Expiry<String, ConversationState> {
+
+        @Override
+        public long expireAfterCreate(String sessionId, ConversationState state, long currentTime) {
+            return Math.min(accessNanos, untilExpiry(state));
+        }
+
+        @Override
+        public long expireAfterUpdate(String sessionId, ConversationState state, long currentTime, long currentDuration) {
+            return Math.min(accessNanos, untilExpiry(state));
+        }
+
+        @Override
+        public long expireAfterRead(String sessionId, ConversationState state, long currentTime, long currentDuration) {
+            return Math.min(accessNanos, untilExpiry(state));
+        }
+
+        private static long untilExpiry(ConversationState state) {
+            LocalDateTime expiresAt = state.getExpiresAt();
+            if (expiresAt == null) {
+                return Long.MAX_VALUE;
+            }
+            long millis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - System.currentTimeMillis();
+            return Math.max(0, millis) * 1_000_000;
+        }
+    }
+
+    /**
+     * Rough retained size: fixed object overhead plus collected data.
+     */
+    static int estimateWeight(ConversationState state) {
+        long weight = 256 + 2L * length(state.getSessionId());
+        if (state.getCollectedData() != null) {
+            for (Map.Entry<String, Object> entry : state.getCollectedData().entrySet()) {
+                weight += 48 + 2L * length(entry.getKey()) + estimateValue(entry.getValue());
+            }
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence text) {
+            return 40 + 2L * text.length();
+        }
+        if (value instanceof Collection<?> items) {
+            long weight = 32;
+            for (Object item : items) {
+                weight += 8 + estimateValue(item);
+            }
+            return weight;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long weight = 48;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                weight += 32 + estimateValue(entry.getKey()) + estimateValue(entry.getValue());
+            }
+            return weight;
+        }
+        return 24;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -2,41 +2,206 @@ package com.dentalcare.chatbot.service;
 
 import org.springframework.stereotype.Component;
 
-import java.util.regex.Pattern;
+import java.util.Optional;
 
 /**
  * Service for validating user input.
+ * 
+ * Validators scan the input once by hand and allocate nothing, so they are
+ * cheap enough for every message. They accept exactly what these regexes
+ * accept (ValidationServiceTest checks that on random input):
+ * - email, after trimming: {@code [A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}}
+ * - phone, after removing whitespace, '-', '(' and ')': {@code [0-9]{10,15}}
+ * 
+ * The normalize methods validate and return the canonical form to store;
+ * input that is already canonical is returned as is, without a copy.
  */
 @Component
 public class ValidationService {
     
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(
-        "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
-    );
+    private static final int MIN_PHONE_DIGITS = 10;
     
-    private static final Pattern PHONE_PATTERN = Pattern.compile(
-        "^[0-9]{10,15}$"
-    );
+    private static final int MAX_PHONE_DIGITS = 15;
     
     /**
      * Validates email format.
      */
     public boolean isValidEmail(String email) {
-        if (email == null || email.trim().isEmpty()) {
+        if (email == null) {
             return false;
         }
-        return EMAIL_PATTERN.matcher(email.trim()).matches();
+        int start = trimStart(email);
+        return findEmailAt(email, start, trimEnd(email, start)) >= 0;
     }
     
     /**
-     * Validates phone number (10-15 digits).
+     * Validates an email and normalizes it: trimmed, with the domain lowercased.
+     * The local part keeps its case, which mail servers may treat as significant.
+     * 
+     * @return Normalized email, or empty if it is invalid
+     */
+    public Optional<String> normalizeEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        int start = trimStart(email);
+        int end = trimEnd(email, start);
+        int at = findEmailAt(email, start, end);
+        if (at < 0) {
+            return Optional.empty();
+        }
+        
+        boolean lowercase = true;
+        for (int i = at + 1; i < end && lowercase; i++) {
+            lowercase = !isUpper(email.charAt(i));
+        }
+        if (lowercase && start == 0 && end == email.length()) {
+            return Optional.of(email);
+        }
+        
+        char[] normalized = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = email.charAt(i);
+            normalized[i - start] = i > at && isUpper(c) ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Optional.of(new String(normalized));
+    }
+    
+    /**
+     * Validates phone number (10-15 digits, ignoring spaces, dashes and parentheses).
      */
     public boolean isValidPhone(String phone) {
-        if (phone == null || phone.trim().isEmpty()) {
+        if (phone == null) {
             return false;
         }
-        // Remove common separators
-        String cleaned = phone.replaceAll("[\\s\\-\\(\\)]", "");
-        return PHONE_PATTERN.matcher(cleaned).matches();
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (!isPhoneSeparator(c)) {
+                return false;
+            }
+        }
+        return digits >= MIN_PHONE_DIGITS && digits <= MAX_PHONE_DIGITS;
+    }
+    
+    /**
+     * Validates a phone number and normalizes it to its digits. A leading '+'
+     * is also accepted and kept, giving E.164 form ("+44 (20) 7946-0958" →
+     * "+442079460958"); without it the number is digits only.
+     * 
+     * @return Normalized phone number, or empty if it is invalid
+     */
+    public Optional<String> normalizePhone(String phone) {
+        if (phone == null) {
+            return Optional.empty();
+        }
+        int digits = 0;
+        int plus = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '+' && digits == 0 && plus == 0) {
+                plus = 1;
+            } else if (!isPhoneSeparator(c)) {
+                return Optional.empty();
+            }
+        }
+        if (digits < MIN_PHONE_DIGITS || digits > MAX_PHONE_DIGITS) {
+            return Optional.empty();
+        }
+        if (plus + digits == phone.length()) {
+            return Optional.of(phone);
+        }
+        
+        char[] normalized = new char[plus + digits];
+        int length = 0;
+        if (plus == 1) {
+            normalized[length++] = '+';
+        }
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                normalized[length++] = c;
+            }
+        }
+        return Optional.of(new String(normalized));
+    }
+    
+    /**
+     * Checks email[start, end) in one pass.
+     * 
+     * @return Index of the '@', or -1 if the email is invalid
+     */
+    private static int findEmailAt(String email, int start, int end) {
+        int at = -1;
+        int lastDot = -1;
+        // Whether everything after the last dot is a letter
+        boolean letters = false;
+        for (int i = start; i < end; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0) {
+                    return -1;
+                }
+                at = i;
+            } else if (at < 0) {
+                if (!isLetterOrDigit(c) && c != '+' && c != '_' && c != '.' && c != '-') {
+                    return -1;
+                }
+            } else if (c == '.') {
+                lastDot = i;
+                letters = true;
+            } else if (isLetterOrDigit(c) || c == '-') {
+                letters &= isLetter(c);
+            } else {
+                return -1;
+            }
+        }
+        // Non-empty local part, a domain label before the last dot, and 2+ letters after it
+        boolean valid = at > start && lastDot > at + 1 && end - lastDot > 2 && letters;
+        return valid ? at : -1;
+    }
+    
+    /**
+     * Same boundaries as String.trim(), without the copy
+     */
+    private static int trimStart(String s) {
+        int start = 0;
+        while (start < s.length() && s.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+    
+    private static int trimEnd(String s, int start) {
+        int end = s.length();
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    
+    /**
+     * Characters removed before checking a phone number: the regex \s
+     * (space, tab, line feed, vertical tab, form feed, carriage return),
+     * '-', '(' and ')'
+     */
+    private static boolean isPhoneSeparator(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r') || c == '-' || c == '(' || c == ')';
+    }
+    
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+    
+    private static boolean isLetter(char c) {
+        return isUpper(c) || (c >= 'a' && c <= 'z');
+    }
+    
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
     }
 }
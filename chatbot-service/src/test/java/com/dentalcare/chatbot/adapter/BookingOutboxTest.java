@@ -0,0 +1,181 @@
+package com.dentalcare.chatbot.adapter;
+
+import com.dentalcare.chatbot.dto.AppointmentInput;
+import com.dentalcare.chatbot.exception.ChatbotException;
+import com.dentalcare.chatbot.exception.SupabaseException;
+import com.dentalcare.chatbot.model.Appointment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Journal replay and rejected bookings, against a temporary outbox directory
+ * and a SupabaseAdapter that records or rejects what it is sent.
+ */
+class BookingOutboxTest {
+
+    private final List<String> delivered = new ArrayList<>();
+
+    private boolean rejectAll;
+
+    @Test
+    void rejectedBookingIsQueryableAfterRestart() throws Exception {
+        Path directory = Files.createTempDirectory("outbox");
+        try {
+            rejectAll = true;
+            BookingOutbox outbox = outbox(directory);
+            Appointment provisional = outbox.submit(booking());
+            String key = provisional.getIdempotencyKey();
+            outbox.drain();
+
+            BookingOutbox.RejectedBooking rejected = outbox.findRejected(key).orElseThrow();
+            assertEquals(422, rejected.getStatus());
+            assertTrue(rejected.getReason().contains("slot taken"), rejected.getReason());
+            outbox.shutdown();
+
+            rejectAll = false;
+            BookingOutbox restarted = outbox(directory);
+            assertEquals(key, restarted.findRejected(key).orElseThrow().getInput().getIdempotencyKey());
+            restarted.drain();
+            assertTrue(delivered.isEmpty(), "rejected booking was sent again");
+            restarted.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void undeliveredBookingIsSentAfterRestart() throws Exception {
+        Path directory = Files.createTempDirectory("outbox");
+        try {
+            BookingOutbox outbox = outbox(directory);
+            String key = outbox.submit(booking()).getIdempotencyKey();
+            outbox.shutdown();
+
+            BookingOutbox restarted = outbox(directory);
+            restarted.drain();
+            assertEquals(List.of(key), delivered);
+            assertFalse(restarted.findRejected(key).isPresent());
+            restarted.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void bookingsReportedAsFailedAreNeverDelivered() throws Exception {
+        Path directory = Files.createTempDirectory("outbox");
+        try {
+            // No time to wait for the fsync: each submit races the writer for its record
+            BookingOutbox outbox = outbox(directory, Duration.ZERO);
+            Set<String> confirmed = new HashSet<>();
+            int failed = 0;
+            for (int i = 0; i < 200; i++) {
+                AppointmentInput booking = booking();
+                booking.setIdempotencyKey(UUID.randomUUID().toString());
+                try {
+                    confirmed.add(outbox.submit(booking).getIdempotencyKey());
+                } catch (ChatbotException e) {
+                    failed++;
+                }
+            }
+            outbox.shutdown();
+
+            BookingOutbox restarted = outbox(directory);
+            restarted.drain();
+            restarted.drain();
+            restarted.drain();
+            restarted.drain();
+            assertEquals(confirmed, new HashSet<>(delivered), failed + " failed, " + confirmed.size() + " confirmed");
+            restarted.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private BookingOutbox outbox(Path directory) throws IOException {
+        return outbox(directory, Duration.ofSeconds(2));
+    }
+
+    private BookingOutbox outbox(Path directory, Duration commitTimeout) throws IOException {
+        BookingOutbox outbox = new BookingOutbox();
+        ReflectionTestUtils.setField(outbox, "supabaseAdapter", adapter());
+        ReflectionTestUtils.setField(outbox, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(outbox, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(outbox, "directory", directory);
+        ReflectionTestUtils.setField(outbox, "batchSize", 50);
+        ReflectionTestUtils.setField(outbox, "commitTimeout", commitTimeout);
+        ReflectionTestUtils.setField(outbox, "compactThresholdBytes", 1L << 20);
+        ReflectionTestUtils.setField(outbox, "maxBackoff", Duration.ofSeconds(30));
+        outbox.init();
+        return outbox;
+    }
+
+    /**
+     * Records delivered keys, or answers 422 to everything while rejectAll is set.
+     */
+    private SupabaseAdapter adapter() {
+        return (SupabaseAdapter) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {SupabaseAdapter.class},
+            (proxy, method, args) -> {
+                List<AppointmentInput> inputs = switch (method.getName()) {
+                    case "createAppointment" -> List.of((AppointmentInput) args[0]);
+                    case "createAppointments" -> castInputs(args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                };
+                if (rejectAll) {
+                    throw new SupabaseException("Failed to create appointment", HttpClientErrorException.create(
+                        HttpStatusCode.valueOf(422), "Unprocessable Entity", HttpHeaders.EMPTY,
+                        "{\"message\":\"slot taken\"}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+                }
+                inputs.forEach(input -> delivered.add(input.getIdempotencyKey()));
+                return method.getName().equals("createAppointment") ? null : List.of();
+            });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AppointmentInput> castInputs(Object inputs) {
+        return (List<AppointmentInput>) inputs;
+    }
+
+    private static AppointmentInput booking() {
+        return AppointmentInput.builder()
+            .patientId(UUID.randomUUID())
+            .dentistId(UUID.randomUUID())
+            .date(LocalDate.of(2026, 11, 2))
+            .time(LocalTime.of(9, 30))
+            .symptoms("toothache")
+            .build();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
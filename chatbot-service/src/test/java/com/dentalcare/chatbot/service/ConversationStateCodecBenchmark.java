@@ -0,0 +1,140 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Size and speed of ConversationStateCodec against Jackson JSON and JDK
+ * serialization, for a typical booking session:
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.mainClass=com.dentalcare.chatbot.service.ConversationStateCodecBenchmark
+ * </pre>
+ *
+ * The session holds nine collected fields, once with a short symptom
+ * description and once with a ~600-character one (above the compression
+ * threshold). ConversationState is not Serializable, so the JDK figures
+ * serialize its fields as an Object[]. Each case runs three rounds and
+ * reports the last. Optional argument: iterations per round.
+ */
+public final class ConversationStateCodecBenchmark {
+
+    private static final String SYMPTOMS =
+        "I have a sharp pain in my lower left molar when I drink something cold, and my gums bleed when I brush. ";
+
+    private ConversationStateCodecBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        ConversationStateCodec codec = new ConversationStateCodec();
+        ObjectMapper json = new ObjectMapper().findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        for (boolean longText : new boolean[] {false, true}) {
+            ConversationState state = session(longText ? SYMPTOMS.repeat(6) : SYMPTOMS);
+            byte[] binaryBytes = codec.serialize(state);
+            byte[] jsonBytes = json.writeValueAsBytes(state);
+            byte[] jdkBytes = jdkSerialize(state);
+            if (!state.equals(codec.deserialize(binaryBytes))) {
+                throw new IllegalStateException("Codec round trip changed the session");
+            }
+
+            long sink = 0;
+            long[] nanos = new long[6];
+            int jdkIterations = Math.max(1, iterations / 4);
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += codec.serialize(state).length;
+                }
+                nanos[0] = (System.nanoTime() - start) / iterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += codec.deserialize(binaryBytes).getCollectedData().size();
+                }
+                nanos[1] = (System.nanoTime() - start) / iterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += json.writeValueAsBytes(state).length;
+                }
+                nanos[2] = (System.nanoTime() - start) / iterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += json.readValue(jsonBytes, ConversationState.class).getCollectedData().size();
+                }
+                nanos[3] = (System.nanoTime() - start) / iterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < jdkIterations; i++) {
+                    sink += jdkSerialize(state).length;
+                }
+                nanos[4] = (System.nanoTime() - start) / jdkIterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < jdkIterations; i++) {
+                    sink += jdkDeserialize(jdkBytes).length;
+                }
+                nanos[5] = (System.nanoTime() - start) / jdkIterations;
+            }
+
+            System.out.printf("%s symptoms: binary %d B, JSON %d B, JDK %d B%n",
+                longText ? "~600-char" : "short", binaryBytes.length, jsonBytes.length, jdkBytes.length);
+            System.out.printf("  encode/decode ns: binary %d/%d, JSON %d/%d, JDK %d/%d (%d)%n",
+                nanos[0], nanos[1], nanos[2], nanos[3], nanos[4], nanos[5], sink % 10);
+        }
+    }
+
+    private static ConversationState session(String symptoms) {
+        ConversationState state = new ConversationState();
+        state.setSessionId(UUID.randomUUID().toString());
+        state.setCurrentState(ConversationStep.PROPOSE_SLOT);
+        LocalDateTime now = LocalDateTime.now();
+        state.setCreatedAt(now.minusMinutes(3));
+        state.setLastUpdated(now);
+        state.setExpiresAt(now.plusMinutes(30));
+
+        Map<String, Object> data = state.getCollectedData();
+        data.put("name", "Maria Gonzalez");
+        data.put("email", "maria.gonzalez@example.com");
+        data.put("phone", "+15551234567");
+        data.put("symptoms", symptoms);
+        data.put("specialization", "endodontist");
+        data.put("dentistId", UUID.randomUUID().toString());
+        data.put("proposedSlots", List.of("2026-10-20T09:00", "2026-10-20T09:30", "2026-10-20T10:00"));
+        data.put("attempts", 2);
+        data.put("confirmed", false);
+        return state;
+    }
+
+    private static byte[] jdkSerialize(ConversationState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Object[] {state.getSessionId(), state.getCurrentState(), state.getCreatedAt(),
+                state.getLastUpdated(), state.getExpiresAt(), new HashMap<>(state.getCollectedData())});
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object[] jdkDeserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Object[]) in.readObject();
+        }
+    }
+}
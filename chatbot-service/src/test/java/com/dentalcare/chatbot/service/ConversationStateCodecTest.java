@@ -0,0 +1,170 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips through ConversationStateCodec for every value tag, and
+ * rejection of input it cannot read.
+ */
+class ConversationStateCodecTest {
+
+    private final ConversationStateCodec codec = new ConversationStateCodec();
+
+    @Test
+    void everyValueTypeRoundTrips() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("slot", LocalDateTime.of(2026, 10, 20, 9, 30));
+        nested.put("dentists", List.of(UUID.randomUUID(), UUID.randomUUID()));
+        nested.put("inner", Map.of("depth", List.of(Map.of("deepest", true))));
+        nested.put("missing", null);
+
+        ConversationState state = state();
+        Map<String, Object> data = state.getCollectedData();
+        data.put("null", null);
+        data.put("string", "Maria Gonzalez");
+        data.put("empty", "");
+        data.put("unicode", "mañana 😁");
+        data.put("true", true);
+        data.put("false", false);
+        data.put("int", -5);
+        data.put("intMax", Integer.MAX_VALUE);
+        data.put("long", 1L << 40);
+        data.put("longMin", Long.MIN_VALUE);
+        data.put("double", 1.5);
+        data.put("negativeZero", -0.0);
+        data.put("list", List.of("2026-10-20T09:00", 2, false));
+        data.put("map", nested);
+        data.put("uuid", UUID.randomUUID());
+        data.put("date", LocalDate.of(1969, 7, 20));
+        data.put("time", LocalTime.of(23, 59, 59, 999_999_999));
+        data.put("dateTime", LocalDateTime.of(1900, 1, 1, 0, 0, 0, 1));
+
+        assertEquals(state, codec.deserialize(codec.serialize(state)));
+    }
+
+    @Test
+    void valuesDecodeToTheTypesJacksonProduces() {
+        ConversationState state = state();
+        state.getCollectedData().put("short", (short) 7);
+        state.getCollectedData().put("smallLong", 7L);
+        state.getCollectedData().put("float", 0.5f);
+        state.getCollectedData().put("set", new TreeSet<>(List.of("a", "b")));
+
+        Map<String, Object> data = codec.deserialize(codec.serialize(state)).getCollectedData();
+        assertEquals(7, data.get("short"));
+        assertEquals(7, data.get("smallLong"));
+        assertEquals(0.5, data.get("float"));
+        assertEquals(List.of("a", "b"), data.get("set"));
+    }
+
+    @Test
+    void headerWithoutTimestampsRoundTrips() {
+        ConversationState state = new ConversationState();
+        state.setSessionId("session-1");
+        state.setCurrentState(ConversationStep.DONE);
+
+        assertEquals(state, codec.deserialize(codec.serialize(state)));
+    }
+
+    @Test
+    void longStringsAreCompressed() {
+        String symptoms = "I have a sharp pain in my lower left molar when I drink something cold. ".repeat(20);
+        ConversationState state = state();
+        state.getCollectedData().put("symptoms", symptoms);
+
+        byte[] compressed = codec.serialize(state);
+        byte[] plain = new ConversationStateCodec(0).serialize(state);
+        assertTrue(compressed.length < symptoms.length() / 4, compressed.length + " bytes");
+        assertTrue(plain.length > symptoms.length(), plain.length + " bytes");
+        assertEquals(state, codec.deserialize(compressed));
+        assertEquals(state, codec.deserialize(plain));
+    }
+
+    @Test
+    void incompressibleLongStringsAreStoredAsIs() {
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.appendCodePoint(0x4E00 + random.nextInt(0x5000));
+        }
+        ConversationState state = state();
+        state.getCollectedData().put("notes", text.toString());
+
+        byte[] bytes = codec.serialize(state);
+        assertEquals(state, codec.deserialize(bytes));
+        assertTrue(bytes.length < text.toString().getBytes(StandardCharsets.UTF_8).length + 200, bytes.length + " bytes");
+    }
+
+    @Test
+    void singleValuesRoundTrip() {
+        for (Object value : Arrays.asList(null, "text", "x".repeat(1000), 42, 1L << 40, 2.5, true,
+                List.of(1, List.of(2)), Map.of("k", Map.of("v", 1)), UUID.randomUUID(),
+                LocalDate.of(2026, 10, 20), LocalTime.NOON, LocalDateTime.of(2026, 10, 20, 9, 30))) {
+            assertEquals(value, codec.decodeValue(codec.encodeValue(value)));
+            assertEquals(value, codec.decodeValue(codec.encodeValue(value), ConversationStateCodec.VALUE_VERSION));
+        }
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        byte[] bytes = codec.serialize(state());
+        bytes[0] = 2;
+        assertThrows(SerializationException.class, () -> codec.deserialize(bytes));
+
+        byte[] value = codec.encodeValue("text");
+        assertThrows(SerializationException.class, () -> codec.decodeValue(value, 2));
+        assertThrows(SerializationException.class, () -> codec.decodeValue(value, 0));
+    }
+
+    @Test
+    void damagedInputIsRejected() {
+        byte[] bytes = codec.serialize(state());
+        assertThrows(SerializationException.class, () -> codec.deserialize(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(SerializationException.class, () -> codec.decodeValue(new byte[] {99}));
+        assertThrows(SerializationException.class, () -> codec.decodeValue(new byte[] {1, 5, 'a'}));
+
+        byte[] step = bytes.clone();
+        // Step ordinal follows the version byte and the length-prefixed session ID
+        step[2 + step[1]] = (byte) ConversationStep.values().length;
+        assertThrows(SerializationException.class, () -> codec.deserialize(step));
+    }
+
+    @Test
+    void emptyInputIsNoState() {
+        assertNull(codec.deserialize(new byte[0]));
+        assertNull(codec.deserialize(null));
+        assertEquals(0, codec.serialize(null).length);
+    }
+
+    private static ConversationState state() {
+        ConversationState state = new ConversationState();
+        state.setSessionId(UUID.randomUUID().toString());
+        state.setCurrentState(ConversationStep.PROPOSE_SLOT);
+        state.setCreatedAt(LocalDateTime.of(2026, 10, 16, 9, 0, 0, 123_456_789));
+        state.setLastUpdated(state.getCreatedAt().plusMinutes(3));
+        state.setExpiresAt(state.getLastUpdated().plusMinutes(30));
+        state.setCollectedData(new HashMap<>());
+        return state;
+    }
+}
@@ -0,0 +1,102 @@
+package com.dentalcare.chatbot.service;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Benchmark of ExpiryWheel with 1M live sessions against the full index
+ * scan it replaced:
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.mainClass=com.dentalcare.chatbot.service.ExpiryWheelBenchmark
+ * </pre>
+ *
+ * Deadlines are spread over a 30 minute TTL with 1 second ticks. Each
+ * round schedules every session and renews as many random ones (both
+ * timed with the index put), fires one tick, scans the index for the same
+ * tick, then drains the wheel tick by tick. Optional arguments: sessions,
+ * rounds.
+ */
+public final class ExpiryWheelBenchmark {
+
+    private static final long TICK_MILLIS = 1000;
+
+    private static final long TTL_MILLIS = 30 * 60_000L;
+
+    private static final long RENEW_MILLIS = 60_000;
+
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    /**
+     * What the index held per session before the wheel: offset, length, expiry
+     */
+    private record Entry(long offset, int length, long expiresAt) {
+    }
+
+    private ExpiryWheelBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        String[] ids = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            ids[i] = UUID.randomUUID().toString();
+        }
+        Random random = new Random(1);
+
+        for (int round = 1; round <= rounds; round++) {
+            long now = START_MILLIS;
+            ExpiryWheel<String> wheel = new ExpiryWheel<>(TICK_MILLIS, now);
+            Map<String, Entry> index = new ConcurrentHashMap<>();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < sessions; i++) {
+                long deadline = now + random.nextLong(TTL_MILLIS);
+                wheel.schedule(ids[i], deadline);
+                index.put(ids[i], new Entry(i, 100, deadline));
+            }
+            long scheduleNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < sessions; i++) {
+                int session = random.nextInt(sessions);
+                long deadline = now + RENEW_MILLIS + TTL_MILLIS;
+                wheel.schedule(ids[session], deadline);
+                index.put(ids[session], new Entry(session, 100, deadline));
+            }
+            long renewNanos = System.nanoTime() - start;
+
+            now += TICK_MILLIS;
+            start = System.nanoTime();
+            int fired = wheel.advance(now, id -> { });
+            long tickNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int due = 0;
+            for (Entry entry : index.values()) {
+                if (entry.expiresAt() <= now) {
+                    due++;
+                }
+            }
+            long scanNanos = System.nanoTime() - start;
+
+            long end = START_MILLIS + TTL_MILLIS + RENEW_MILLIS + 2 * TICK_MILLIS;
+            int drained = 0;
+            start = System.nanoTime();
+            while (now < end) {
+                now += TICK_MILLIS;
+                drained += wheel.advance(now, id -> { });
+            }
+            long drainNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: schedule %d ns, renew %d ns, one tick %.2f ms (%d fired) vs scan %.1f ms (%d due),"
+                    + " drain %d ns per expired session (%d left)%n",
+                round, scheduleNanos / sessions, renewNanos / sessions, tickNanos / 1e6, fired, scanNanos / 1e6, due,
+                drainNanos / Math.max(1, drained), wheel.size());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.dentalcare.chatbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the wheel against a brute-force model: a map of keys to the tick
+ * they are due, scanned in full on every advance.
+ */
+class ExpiryWheelTest {
+
+    private static final long SEED = 20261016L;
+
+    private static final int RUNS = 50;
+
+    private static final int STEPS = 3_000;
+
+    private static final int KEYS = 300;
+
+    @Test
+    void firesExactlyWhatBruteForceFires() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < RUNS; run++) {
+            long tick = 1 + random.nextInt(1000);
+            long now = random.nextLong(1L << 40);
+            ExpiryWheel<Integer> wheel = new ExpiryWheel<>(tick, now);
+            // Key to the tick at which it is due
+            Map<Integer, Long> due = new HashMap<>();
+            long currentTick = now / tick;
+
+            for (int step = 0; step < STEPS; step++) {
+                int operation = random.nextInt(10);
+                int key = random.nextInt(KEYS);
+                if (operation < 5) {
+                    long deadline = now - 3 * tick + random.nextLong(randomSpan(random, tick));
+                    wheel.schedule(key, deadline);
+                    due.put(key, Math.max(Math.floorDiv(deadline + tick - 1, tick), currentTick + 1));
+                } else if (operation < 6) {
+                    assertEquals(due.remove(key) != null, wheel.cancel(key), "cancel " + key);
+                } else {
+                    now += randomAdvance(random, tick);
+                    long target = Math.max(currentTick, now / tick);
+
+                    List<Integer> fired = new ArrayList<>();
+                    wheel.advance(now, fired::add);
+
+                    long previous = Long.MIN_VALUE;
+                    for (Integer firedKey : fired) {
+                        Long dueTick = due.remove(firedKey);
+                        assertTrue(dueTick != null, "fired unknown or cancelled key " + firedKey);
+                        assertTrue(dueTick <= target, "fired key " + firedKey + " early");
+                        assertTrue(dueTick >= previous, "fired out of deadline order");
+                        previous = dueTick;
+                    }
+                    for (Map.Entry<Integer, Long> entry : due.entrySet()) {
+                        assertTrue(entry.getValue() > target, "missed key " + entry.getKey());
+                    }
+                    assertEquals(due.size(), wheel.size());
+                    currentTick = target;
+                }
+            }
+        }
+    }
+
+    @Test
+    void roundsDeadlinesUpToTheTick() {
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(1000, 10_000);
+        wheel.schedule("a", 11_001);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(11_999, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(12_000, fired::add);
+        assertEquals(List.of("a"), fired);
+        assertFalse(wheel.cancel("a"));
+    }
+
+    @Test
+    void deadlinesPastTheTopLevelStillFire() {
+        long tick = 1000;
+        // The four levels cover 64^4 = 2^24 ticks
+        long far = (1L << 24) * tick * 3;
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(tick, 0);
+        wheel.schedule("far", far);
+        wheel.schedule("near", tick);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(far - tick, fired::add);
+        assertEquals(List.of("near"), fired);
+        wheel.advance(far, fired::add);
+        assertEquals(List.of("near", "far"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Mostly within a level or two, sometimes past the top level
+     */
+    private static long randomSpan(Random random, long tick) {
+        return switch (random.nextInt(4)) {
+            case 0 -> 100 * tick;
+            case 1 -> 10_000 * tick;
+            case 2 -> (1L << 26) * tick;
+            default -> 5 * tick;
+        };
+    }
+
+    private static long randomAdvance(Random random, long tick) {
+        if (random.nextInt(1000) == 0) {
+            return random.nextLong((1L << 25) * tick);
+        }
+        return switch (random.nextInt(3)) {
+            case 0 -> random.nextLong(3 * tick);
+            case 1 -> random.nextLong(200 * tick);
+            default -> random.nextLong(20_000 * tick);
+        };
+    }
+}
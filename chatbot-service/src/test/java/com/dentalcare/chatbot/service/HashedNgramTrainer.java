@@ -0,0 +1,177 @@
+package com.dentalcare.chatbot.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Offline trainer for HashedNgramClassifier.
+ *
+ * Trains multinomial logistic regression with SGD on a labelled corpus
+ * and writes the model file loaded by MLIntentDetector:
+ *
+ * <pre>
+ * mvn -q test-compile exec:java \
+ *     -Dexec.args="src/main/resources/ml/intent-corpus.tsv src/main/resources/ml/intent-model.bin"
+ * </pre>
+ *
+ * Kept in the test sources so that it is not packaged with the service.
+ *
+ * Corpus format: one example per line, {@code LABEL<TAB>text}; blank
+ * lines and lines starting with '#' are ignored. Labels are written to
+ * the model in order of first appearance.
+ *
+ * Prints 5-fold cross-validated accuracy before training the final
+ * model on the whole corpus. Training is deterministic (fixed seed).
+ */
+public final class HashedNgramTrainer {
+
+    static final int DEFAULT_BITS = 18;
+    static final int DEFAULT_EPOCHS = 20;
+
+    private static final int FOLDS = 5;
+    private static final float LEARNING_RATE = 0.5f;
+    private static final long SEED = 20261016L;
+
+    private record Example(int label, int[] features, String text) {
+    }
+
+    private final int bits;
+    private final int epochs;
+
+    HashedNgramTrainer(int bits, int epochs) {
+        this.bits = bits;
+        this.epochs = epochs;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: HashedNgramTrainer <corpus.tsv> <model.bin> [bits] [epochs]");
+            System.exit(2);
+        }
+        int bits = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BITS;
+        int epochs = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_EPOCHS;
+        HashedNgramTrainer trainer = new HashedNgramTrainer(bits, epochs);
+
+        List<String> labels = new ArrayList<>();
+        List<Example> corpus = trainer.readCorpus(Path.of(args[0]), labels);
+        System.out.printf("%d examples, %d classes %s%n", corpus.size(), labels.size(), labels);
+
+        double accuracy = trainer.crossValidate(corpus, labels);
+        System.out.printf("%d-fold cross-validated accuracy: %.1f%%%n", FOLDS, accuracy * 100);
+
+        HashedNgramClassifier model = trainer.train(corpus, labels);
+        try (OutputStream out = Files.newOutputStream(Path.of(args[1]))) {
+            model.write(out);
+        }
+        System.out.printf("Wrote %s (%d bytes)%n", args[1], Files.size(Path.of(args[1])));
+    }
+
+    List<Example> readCorpus(Path file, List<String> labels) throws IOException {
+        List<Example> corpus = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab <= 0) {
+                throw new IllegalArgumentException(file + ":" + lineNumber + ": expected LABEL<TAB>text");
+            }
+            String label = line.substring(0, tab).trim();
+            String text = line.substring(tab + 1).trim();
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+            corpus.add(new Example(labels.indexOf(label), features(text), text));
+        }
+        return corpus;
+    }
+
+    HashedNgramClassifier train(List<Example> examples, List<String> labels) {
+        int classes = labels.size();
+        float[] weights = new float[(1 << bits) * classes];
+        float[] bias = new float[classes];
+        float[] scores = new float[classes];
+
+        List<Example> order = new ArrayList<>(examples);
+        Random random = new Random(SEED);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Collections.shuffle(order, random);
+            float rate = LEARNING_RATE / (1 + epoch * 0.1f);
+            for (Example example : order) {
+                float scale = predict(example.features(), weights, bias, scores);
+                for (int c = 0; c < classes; c++) {
+                    float gradient = scores[c] - (c == example.label() ? 1 : 0);
+                    bias[c] -= rate * gradient * 0.1f;
+                    for (int feature : example.features()) {
+                        weights[feature * classes + c] -= rate * gradient * scale;
+                    }
+                }
+            }
+        }
+        return new HashedNgramClassifier(bits, labels, bias, weights);
+    }
+
+    /**
+     * Trains on all folds but one, tests on the held-out fold, for each fold.
+     */
+    double crossValidate(List<Example> corpus, List<String> labels) {
+        List<Example> shuffled = new ArrayList<>(corpus);
+        Collections.shuffle(shuffled, new Random(SEED));
+
+        int correct = 0;
+        float[] probabilities = new float[labels.size()];
+        for (int fold = 0; fold < FOLDS; fold++) {
+            List<Example> training = new ArrayList<>();
+            List<Example> test = new ArrayList<>();
+            for (int i = 0; i < shuffled.size(); i++) {
+                (i % FOLDS == fold ? test : training).add(shuffled.get(i));
+            }
+            HashedNgramClassifier model = train(training, labels);
+            for (Example example : test) {
+                if (model.classify(example.text(), probabilities) == example.label()) {
+                    correct++;
+                }
+            }
+        }
+        return (double) correct / shuffled.size();
+    }
+
+    /**
+     * Fills scores with class probabilities, as HashedNgramClassifier.classify does.
+     *
+     * @return The feature scale used
+     */
+    private static float predict(int[] features, float[] weights, float[] bias, float[] scores) {
+        int classes = bias.length;
+        Arrays.fill(scores, 0);
+        for (int feature : features) {
+            for (int c = 0; c < classes; c++) {
+                scores[c] += weights[feature * classes + c];
+            }
+        }
+        float scale = features.length > 0 ? (float) (1 / Math.sqrt(features.length)) : 0;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < classes; c++) {
+            scores[c] = bias[c] + scores[c] * scale;
+            max = Math.max(max, scores[c]);
+        }
+        HashedNgramClassifier.softmax(scores, classes, max);
+        return scale;
+    }
+
+    private int[] features(String text) {
+        List<Integer> features = new ArrayList<>();
+        HashedNgramClassifier.features(text, bits, features, List::add);
+        return features.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
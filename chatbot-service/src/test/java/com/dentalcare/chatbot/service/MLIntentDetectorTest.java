@@ -0,0 +1,76 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.Intent;
+import com.dentalcare.chatbot.model.IntentScore;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the committed ml/intent-model.bin against labelled messages that
+ * are not in the training corpus, so a retrained or damaged model fails the
+ * build instead of misrouting patients under the 'ml' profile.
+ */
+class MLIntentDetectorTest {
+
+    private static final Map<String, Intent> LABELLED = Map.ofEntries(
+        Map.entry("Can I book an apointment for next week?", Intent.BOOKING),
+        Map.entry("I'd like to schedule a cleaning", Intent.BOOKING),
+        Map.entry("which dentists work on saturday", Intent.DENTIST_INFO),
+        Map.entry("do you have an orthodontist", Intent.DENTIST_INFO),
+        Map.entry("how much does a crown cost", Intent.PAYMENT),
+        Map.entry("can I pay with credit card", Intent.PAYMENT),
+        Map.entry("when do you open on sunday", Intent.GENERAL_INQUIRY),
+        Map.entry("where is the clinic located", Intent.GENERAL_INQUIRY),
+        Map.entry("Jane Doe", Intent.UNKNOWN),
+        Map.entry("thank you", Intent.UNKNOWN)
+    );
+
+    @Test
+    void committedModelClassifiesLabelledMessages() throws IOException {
+        MLIntentDetector detector = detector(new ClassPathResource("ml/intent-model.bin"));
+
+        LABELLED.forEach((text, intent) -> assertEquals(intent, detector.detectIntent(text), text));
+    }
+
+    @Test
+    void rankingStartsWithTheDetectedIntent() throws IOException {
+        MLIntentDetector detector = detector(new ClassPathResource("ml/intent-model.bin"));
+
+        List<IntentScore> ranked = detector.rankIntents("how much is a filling");
+        assertEquals(Intent.PAYMENT, ranked.get(0).intent());
+        assertTrue(ranked.stream().noneMatch(score -> score.intent() == Intent.UNKNOWN));
+    }
+
+    @Test
+    void damagedModelFailsStartup() throws IOException {
+        byte[] model;
+        try (InputStream in = new ClassPathResource("ml/intent-model.bin").getInputStream()) {
+            model = in.readAllBytes();
+        }
+
+        assertThrows(IOException.class, () -> detector(new ByteArrayResource(Arrays.copyOf(model, model.length / 2))));
+        model[0] ^= 1;
+        assertThrows(IOException.class, () -> detector(new ByteArrayResource(model)));
+    }
+
+    private static MLIntentDetector detector(Resource model) throws IOException {
+        MLIntentDetector detector = new MLIntentDetector();
+        ReflectionTestUtils.setField(detector, "modelResource", model);
+        ReflectionTestUtils.setField(detector, "minConfidence", 0.5);
+        detector.init();
+        return detector;
+    }
+}
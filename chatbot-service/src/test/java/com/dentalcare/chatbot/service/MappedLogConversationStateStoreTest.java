@@ -0,0 +1,244 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Crash recovery of the mapped log: each test writes sessions, shuts the
+ * store down, damages the files the way a crash would and reopens the
+ * directory.
+ */
+class MappedLogConversationStateStoreTest {
+
+    private static final int FILE_SIZE = 64 * 1024;
+
+    @Test
+    void truncatedTailIsCutOffAtTheLastValidRecord() throws IOException {
+        Path directory = Files.createTempDirectory("mmap-store");
+        try {
+            MappedLogConversationStateStore store = store(directory);
+            store.save(state("a", "Ann"));
+            store.save(state("b", "Bob"));
+            store.save(state("c", "Cat"));
+            store.shutdown();
+
+            // Crash mid-write: the last record's header made it to disk, the end of its payload did not
+            List<Integer> records = recordOffsets(logFile(directory, 0));
+            int last = records.get(2);
+            try (FileChannel channel = FileChannel.open(logFile(directory, 0), StandardOpenOption.WRITE)) {
+                channel.truncate(records.get(3) - 10);
+            }
+
+            store = store(directory);
+            assertEquals("Ann", name(store, "a"));
+            assertEquals("Bob", name(store, "b"));
+            assertFalse(store.findBySessionId("c").isPresent());
+
+            // The next record goes where the torn one was, and the zeroed tail leaves no leftovers
+            store.save(state("d", "Dan"));
+            assertEquals(List.of(0, records.get(1), last), recordOffsets(logFile(directory, 0)).subList(0, 3));
+            store.shutdown();
+
+            store = store(directory);
+            assertEquals("Ann", name(store, "a"));
+            assertEquals("Dan", name(store, "d"));
+            assertFalse(store.findBySessionId("c").isPresent());
+            store.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void headerPointingPastTheFileIsCutOff() throws IOException {
+        Path directory = Files.createTempDirectory("mmap-store");
+        try {
+            MappedLogConversationStateStore store = store(directory);
+            store.save(state("a", "Ann"));
+            store.save(state("b", "Bob"));
+            store.shutdown();
+
+            int second = recordOffsets(logFile(directory, 0)).get(1);
+            overwrite(logFile(directory, 0), second, ByteBuffer.allocate(4).putInt(FILE_SIZE).array());
+
+            store = store(directory);
+            assertEquals("Ann", name(store, "a"));
+            assertFalse(store.findBySessionId("b").isPresent());
+            store.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void corruptTailIsCutOffAtTheLastValidRecord() throws IOException {
+        Path directory = Files.createTempDirectory("mmap-store");
+        try {
+            MappedLogConversationStateStore store = store(directory);
+            store.save(state("a", "Ann"));
+            store.save(state("b", "Bob"));
+            store.save(state("a", "Amy"));
+            store.shutdown();
+
+            // One flipped bit in the latest record of "a": its CRC no longer matches
+            int last = recordOffsets(logFile(directory, 0)).get(2);
+            byte[] file = Files.readAllBytes(logFile(directory, 0));
+            overwrite(logFile(directory, 0), last + 20, new byte[] {(byte) (file[last + 20] ^ 1)});
+
+            store = store(directory);
+            assertEquals("Ann", name(store, "a"));
+            assertEquals("Bob", name(store, "b"));
+            store.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void crashBeforeTheCompactionRenameKeepsThePreviousGeneration() throws IOException {
+        Path directory = Files.createTempDirectory("mmap-store");
+        try {
+            MappedLogConversationStateStore store = store(directory);
+            store.save(state("a", "Ann"));
+            store.save(state("b", "Bob"));
+            store.shutdown();
+
+            // Half-written next generation, still under its temporary name
+            Path tmp = directory.resolve("sessions.1.log.123.tmp");
+            Files.write(tmp, Arrays.copyOf(Files.readAllBytes(logFile(directory, 0)), 100));
+
+            store = store(directory);
+            assertFalse(Files.exists(tmp));
+            assertEquals("Ann", name(store, "a"));
+            assertEquals("Bob", name(store, "b"));
+            store.save(state("c", "Cat"));
+            store.shutdown();
+
+            assertEquals(List.of(logFile(directory, 0)), files(directory));
+            store = store(directory);
+            assertEquals("Cat", name(store, "c"));
+            store.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void crashAfterTheCompactionRenameUsesTheNewGeneration() throws IOException {
+        Path directory = Files.createTempDirectory("mmap-store");
+        Path previous = Files.createTempFile("mmap-store", ".log");
+        try {
+            MappedLogConversationStateStore store = store(directory);
+            store.save(state("a", "Ann"));
+            for (int i = 0; i < 10; i++) {
+                store.save(state("b", "Bob " + i));
+            }
+            Files.copy(logFile(directory, 0), previous, StandardCopyOption.REPLACE_EXISTING);
+
+            store.compactIfNeeded();
+            assertEquals(List.of(logFile(directory, 1)), files(directory));
+            store.save(state("c", "Cat"));
+            store.shutdown();
+
+            // The old generation was not deleted before the crash
+            Files.copy(previous, logFile(directory, 0));
+
+            store = store(directory);
+            assertEquals(List.of(logFile(directory, 1)), files(directory));
+            assertEquals("Ann", name(store, "a"));
+            assertEquals("Bob 9", name(store, "b"));
+            assertEquals("Cat", name(store, "c"));
+            store.shutdown();
+        } finally {
+            delete(directory);
+            Files.deleteIfExists(previous);
+        }
+    }
+
+    private static MappedLogConversationStateStore store(Path directory) throws IOException {
+        MappedLogConversationStateStore store = new MappedLogConversationStateStore();
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "directory", directory);
+        ReflectionTestUtils.setField(store, "initialFileSize", FILE_SIZE);
+        ReflectionTestUtils.setField(store, "compactionGarbageRatio", 0.5);
+        ReflectionTestUtils.setField(store, "expiryTickMillis", 1000L);
+        store.init();
+        return store;
+    }
+
+    private static ConversationState state(String sessionId, String name) {
+        ConversationState state = new ConversationState();
+        state.setSessionId(sessionId);
+        state.setCurrentState(ConversationStep.COLLECT_EMAIL);
+        state.setCollectedData(new HashMap<>());
+        state.getCollectedData().put("name", name);
+        state.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+        state.setLastUpdated(state.getCreatedAt());
+        state.setExpiresAt(LocalDateTime.now().plusHours(1));
+        return state;
+    }
+
+    private static String name(MappedLogConversationStateStore store, String sessionId) {
+        return (String) store.findBySessionId(sessionId).orElseThrow().getCollectedData().get("name");
+    }
+
+    private static Path logFile(Path directory, long generation) {
+        return directory.resolve("sessions." + generation + ".log");
+    }
+
+    /**
+     * Start of each record, followed by the end of the last one.
+     */
+    private static List<Integer> recordOffsets(Path file) throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Integer> offsets = new ArrayList<>();
+        int position = 0;
+        while (position + 8 <= log.capacity() && log.getInt(position) > 0) {
+            offsets.add(position);
+            position += 8 + log.getInt(position);
+        }
+        offsets.add(position);
+        return offsets;
+    }
+
+    private static void overwrite(Path file, int offset, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.SpecializationScore;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Typo tolerance against the shipped symptom-mapping.yml: misspelled words
+ * and phrases, phrases typed as one word, and exact phrases that must not
+ * be counted twice.
+ */
+class SymptomMapperImplTest {
+
+    private final SymptomMapperImpl mapper = mapper();
+
+    @Test
+    void misspelledSymptomsReachTheirSpecialization() {
+        assertEquals("endodontist", mapper.mapToSpecialization("tooth ake"));
+        assertEquals("periodontist", mapper.mapToSpecialization("gumz bleding"));
+        assertEquals("orthodontist", mapper.mapToSpecialization("bracess"));
+        assertEquals("endodontist", mapper.mapToSpecialization("I think I need a root canel"));
+    }
+
+    @Test
+    void phraseTypedAsOneWordCountsInFull() {
+        assertEquals(List.of(new SpecializationScore("endodontist", 3.0)), mapper.rankSpecializations("rootcanal"));
+        assertEquals("prosthodontist", mapper.mapToSpecialization("I have a missingtooth"));
+        assertEquals(List.of(new SpecializationScore("prosthodontist", 2.0)), mapper.rankSpecializations("missingtooth"));
+    }
+
+    @Test
+    void exactPhraseIsCountedOnce() {
+        assertEquals(List.of(new SpecializationScore("endodontist", 3.0)), mapper.rankSpecializations("root canal"));
+        assertEquals(List.of(new SpecializationScore("endodontist", 3.0)), mapper.rankSpecializations("Root-Canal?"));
+    }
+
+    @Test
+    void misspelledPhraseCountsLessThanExact() {
+        assertEquals(List.of(new SpecializationScore("endodontist", 3.0 * 0.8)), mapper.rankSpecializations("root canel"));
+    }
+
+    @Test
+    void unrelatedWordsFallBackToDefault() {
+        assertEquals("general_dentist", mapper.mapToSpecialization("hello there"));
+        assertEquals(List.of(), mapper.rankSpecializations("I paid in spain"));
+    }
+
+    private static SymptomMapperImpl mapper() {
+        SymptomMapperImpl mapper = new SymptomMapperImpl();
+        ReflectionTestUtils.setField(mapper, "mappingConfig", new ClassPathResource("symptom-mapping.yml"));
+        try {
+            mapper.init();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return mapper;
+    }
+}
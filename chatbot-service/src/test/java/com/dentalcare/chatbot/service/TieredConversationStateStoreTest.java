@@ -0,0 +1,271 @@
+package com.dentalcare.chatbot.service;
+
+import com.dentalcare.chatbot.model.ConversationState;
+import com.dentalcare.chatbot.model.ConversationStep;
+import com.dentalcare.chatbot.repository.ConversationStateJdbcWriter;
+import com.dentalcare.chatbot.repository.ConversationStateRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * L1 in front of the write-behind database store: every turn loads the
+ * session, edits it, saves it and flushes, and the table must follow.
+ *
+ * The real ConversationStateJdbcWriter runs against an in-memory table that
+ * applies its upserts, patches and touches, so a stale persisted snapshot
+ * shows up as a lost update.
+ */
+class TieredConversationStateStoreTest {
+
+    private static final String SESSION_ID = "session-1";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Map<String, ConversationState> table = new HashMap<>();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DatabaseConversationStateStore database = databaseStore();
+
+    private final TieredConversationStateStore tiered = tieredStore(database);
+
+    @Test
+    void everyChangeReachesTheTableThroughL1() {
+        insertRow(Map.of("phone", "A", "name", "Jane"));
+
+        turn(state -> state.getCollectedData().put("phone", "B"));
+        assertEquals("B", storedData().get("phone"));
+
+        // Back to the value before the previous flush
+        turn(state -> state.getCollectedData().put("phone", "A"));
+        assertEquals("A", storedData().get("phone"));
+
+        turn(state -> state.getCollectedData().remove("name"));
+        assertFalse(storedData().containsKey("name"));
+
+        turn(state -> state.getCollectedData().put("name", "Jane"));
+        assertEquals(Map.of("phone", "A", "name", "Jane"), storedData());
+    }
+
+    @Test
+    void savingTheSameInstanceAgainIsNotLost() {
+        insertRow(Map.of("phone", "A"));
+
+        ConversationState state = tiered.findBySessionId(SESSION_ID).orElseThrow();
+        state.getCollectedData().put("phone", "B");
+        tiered.save(state);
+        database.flush();
+        state.getCollectedData().put("phone", "A");
+        tiered.save(state);
+        database.flush();
+
+        assertEquals("A", storedData().get("phone"));
+    }
+
+    @Test
+    void stepChangesAfterAFlushAreWritten() {
+        insertRow(Map.of("phone", "A"));
+
+        turn(state -> state.setCurrentState(ConversationStep.COLLECT_EMAIL));
+        turn(state -> state.setCurrentState(ConversationStep.COLLECT_PHONE));
+
+        assertEquals(ConversationStep.COLLECT_PHONE, table.get(SESSION_ID).getCurrentState());
+    }
+
+    /**
+     * One request: load through the L1, edit, save, then the write-behind flush.
+     */
+    private void turn(Consumer<ConversationState> edit) {
+        ConversationState state = tiered.findBySessionId(SESSION_ID).orElseThrow();
+        edit.accept(state);
+        state.setLastUpdated(state.getLastUpdated().plusSeconds(1));
+        tiered.save(state);
+        database.flush();
+    }
+
+    private void insertRow(Map<String, Object> data) {
+        ConversationState row = new ConversationState();
+        row.setSessionId(SESSION_ID);
+        row.setCurrentState(ConversationStep.COLLECT_NAME);
+        row.setCollectedData(new HashMap<>(data));
+        row.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+        row.setLastUpdated(row.getCreatedAt());
+        row.setExpiresAt(LocalDateTime.now().plusHours(1));
+        table.put(SESSION_ID, row);
+    }
+
+    private Map<String, Object> storedData() {
+        return table.get(SESSION_ID).getCollectedData();
+    }
+
+    private DatabaseConversationStateStore databaseStore() {
+        ConversationStateJdbcWriter writer = new ConversationStateJdbcWriter();
+        ReflectionTestUtils.setField(writer, "jdbcTemplate", new TableJdbcTemplate());
+        ReflectionTestUtils.setField(writer, "objectMapper", JSON);
+        ReflectionTestUtils.setField(writer, "meterRegistry", meterRegistry);
+
+        DatabaseConversationStateStore store = new DatabaseConversationStateStore();
+        ReflectionTestUtils.setField(store, "repository", repository());
+        ReflectionTestUtils.setField(store, "jdbcWriter", writer);
+        ReflectionTestUtils.setField(store, "entityManager", proxy(EntityManager.class, (method, args) -> null));
+        ReflectionTestUtils.setField(store, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(store, "writeBehind", true);
+        ReflectionTestUtils.setField(store, "flushSteps", Set.of());
+        ReflectionTestUtils.setField(store, "maxDirtySessions", 1000);
+        return store;
+    }
+
+    private TieredConversationStateStore tieredStore(ConversationStateStore backend) {
+        TieredConversationStateStore store = new TieredConversationStateStore();
+        ReflectionTestUtils.setField(store, "backend", backend);
+        ReflectionTestUtils.setField(store, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(store, "maxWeightBytes", 1L << 20);
+        ReflectionTestUtils.setField(store, "expireAfterAccess", Duration.ofMinutes(5));
+        store.init();
+        return store;
+    }
+
+    /**
+     * Loads a copy of the row and records it as persisted, as JPA does after a load.
+     */
+    private ConversationStateRepository repository() {
+        return proxy(ConversationStateRepository.class, (method, args) -> {
+            if (!method.equals("findBySessionId")) {
+                throw new UnsupportedOperationException(method);
+            }
+            ConversationState row = table.get((String) args[0]);
+            if (row == null) {
+                return Optional.empty();
+            }
+            ConversationState loaded = row.copy();
+            loaded.markPersisted();
+            return Optional.of(loaded);
+        });
+    }
+
+    /**
+     * Applies the writer's statements to the in-memory table.
+     */
+    private class TableJdbcTemplate extends JdbcTemplate {
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> items, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> setter) {
+            int[] counts = new int[items.size()];
+            int index = 0;
+            for (T item : items) {
+                Map<Integer, Object> parameters = new HashMap<>();
+                try {
+                    setter.setValues(statement(parameters), item);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                counts[index++] = apply(sql, parameters);
+            }
+            return new int[][] {counts};
+        }
+
+        private int apply(String sql, Map<Integer, Object> p) {
+            if (sql.startsWith("INSERT")) {
+                ConversationState row = table.computeIfAbsent((String) p.get(1), id -> {
+                    ConversationState created = new ConversationState();
+                    created.setSessionId(id);
+                    created.setCreatedAt(time(p.get(4)));
+                    return created;
+                });
+                row.setCurrentState(ConversationStep.valueOf((String) p.get(2)));
+                row.setCollectedData(parse(p.get(3)));
+                row.setLastUpdated(time(p.get(5)));
+                row.setExpiresAt(time(p.get(6)));
+                return 1;
+            }
+
+            boolean patch = sql.contains("collected_data");
+            ConversationState row = table.get((String) p.get(patch ? 6 : 4));
+            if (row == null) {
+                return 0;
+            }
+            row.setCurrentState(ConversationStep.valueOf((String) p.get(1)));
+            if (patch) {
+                for (Object key : (Object[]) p.get(2)) {
+                    row.getCollectedData().remove((String) key);
+                }
+                row.getCollectedData().putAll(parse(p.get(3)));
+            }
+            row.setLastUpdated(time(p.get(patch ? 4 : 2)));
+            row.setExpiresAt(time(p.get(patch ? 5 : 3)));
+            return 1;
+        }
+
+        private static Map<String, Object> parse(Object json) {
+            try {
+                return JSON.readValue((String) json, new TypeReference<HashMap<String, Object>>() { });
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static LocalDateTime time(Object timestamp) {
+            return timestamp != null ? ((Timestamp) timestamp).toLocalDateTime() : null;
+        }
+
+        /**
+         * Records setXxx(index, value) calls; arrays come back as their elements.
+         */
+        private static PreparedStatement statement(Map<Integer, Object> parameters) {
+            Connection connection = proxy(Connection.class, (method, args) -> {
+                if (!method.equals("createArrayOf")) {
+                    throw new UnsupportedOperationException(method);
+                }
+                return proxy(Array.class, (arrayMethod, arrayArgs) -> args[1]);
+            });
+            return proxy(PreparedStatement.class, (method, args) -> {
+                if (method.equals("getConnection")) {
+                    return connection;
+                }
+                if (!method.startsWith("set") || args.length != 2) {
+                    throw new UnsupportedOperationException(method);
+                }
+                Object value = args[1];
+                parameters.put((Integer) args[0], value instanceof Array array ? array.getArray() : value);
+                return null;
+            });
+        }
+    }
+
+    private interface Handler {
+
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+            (instance, method, args) -> handler.invoke(method.getName(), args != null ? args : new Object[0])));
+    }
+}
@@ -0,0 +1,154 @@
+package com.dentalcare.chatbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Property tests: the hand-written validators must agree with the regexes
+ * they replaced on seeded random input, mostly near-valid strings.
+ */
+class ValidationServiceTest {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+        "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
+    );
+
+    private static final Pattern PHONE_PATTERN = Pattern.compile(
+        "^[0-9]{10,15}$"
+    );
+
+    private static final long SEED = 20261016L;
+
+    private static final int SAMPLES = 200_000;
+
+    private static final String EMAIL_CHARS = "aZ09+_.-@.. \té!";
+
+    private static final String PHONE_CHARS = "0123456789 -()+.\t\n\u000bx";
+
+    private final ValidationService validation = new ValidationService();
+
+    @Test
+    void emailAgreesWithRegex() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            String email = randomEmail(random);
+            boolean expected = !email.trim().isEmpty() && EMAIL_PATTERN.matcher(email.trim()).matches();
+            assertEquals(expected, validation.isValidEmail(email), () -> "email '" + email + "'");
+            assertEquals(expected, validation.normalizeEmail(email).isPresent(), () -> "normalizeEmail '" + email + "'");
+        }
+    }
+
+    @Test
+    void phoneAgreesWithRegex() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            String phone = randomPhone(random);
+            String cleaned = phone.replaceAll("[\\s\\-\\(\\)]", "");
+            boolean expected = !phone.trim().isEmpty() && PHONE_PATTERN.matcher(cleaned).matches();
+            assertEquals(expected, validation.isValidPhone(phone), () -> "phone '" + phone + "'");
+            if (expected) {
+                assertEquals(Optional.of(cleaned), validation.normalizePhone(phone), () -> "normalizePhone '" + phone + "'");
+            } else if (phone.indexOf('+') < 0) {
+                assertFalse(validation.normalizePhone(phone).isPresent(), () -> "normalizePhone '" + phone + "'");
+            }
+        }
+    }
+
+    @Test
+    void normalizedEmailIsTrimmedWithLowercaseDomain() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            String email = randomEmail(random);
+            Optional<String> normalized = validation.normalizeEmail(email);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            String trimmed = email.trim();
+            int at = trimmed.indexOf('@');
+            String expected = trimmed.substring(0, at + 1) + trimmed.substring(at + 1).toLowerCase();
+            assertEquals(expected, normalized.get(), () -> "normalizeEmail '" + email + "'");
+            assertSame(normalized.get(), validation.normalizeEmail(normalized.get()).orElseThrow());
+        }
+    }
+
+    @Test
+    void leadingPlusGivesE164() {
+        assertEquals(Optional.of("+442079460958"), validation.normalizePhone("+44 (20) 7946-0958"));
+        assertEquals(Optional.of("+15551234567"), validation.normalizePhone(" +1-555-123-4567"));
+        assertEquals(Optional.of("5551234567"), validation.normalizePhone("(555) 123-4567"));
+        assertFalse(validation.normalizePhone("44+2079460958").isPresent());
+        assertFalse(validation.normalizePhone("++442079460958").isPresent());
+        assertFalse(validation.normalizePhone("+1234").isPresent());
+        assertFalse(validation.isValidPhone("+442079460958"));
+    }
+
+    @Test
+    void canonicalInputIsNotCopied() {
+        String phone = "+442079460958";
+        String email = "Jane.Doe@example.com";
+        assertSame(phone, validation.normalizePhone(phone).orElseThrow());
+        assertSame(email, validation.normalizeEmail(email).orElseThrow());
+        assertEquals("Jane.Doe@example.com", validation.normalizeEmail("  Jane.Doe@Example.COM ").orElseThrow());
+        assertTrue(validation.isValidEmail("a@b.co"));
+    }
+
+    /**
+     * Usually local@domain.tld with random parts, then a few random edits
+     */
+    private static String randomEmail(Random random) {
+        StringBuilder email = new StringBuilder();
+        if (random.nextInt(4) > 0) {
+            email.append(randomString(random, "aZ09+_.-", random.nextInt(6)))
+                .append('@')
+                .append(randomString(random, "aZ09.-", random.nextInt(6)))
+                .append('.')
+                .append(randomString(random, "aZqQ", random.nextInt(4)));
+        }
+        return mutate(random, email, EMAIL_CHARS);
+    }
+
+    /**
+     * Usually 8-17 digits with separators, then a few random edits
+     */
+    private static String randomPhone(Random random) {
+        StringBuilder phone = new StringBuilder();
+        int digits = 8 + random.nextInt(10);
+        for (int i = 0; i < digits; i++) {
+            if (random.nextInt(5) == 0) {
+                phone.append(PHONE_CHARS.charAt(10 + random.nextInt(PHONE_CHARS.length() - 10)));
+            }
+            phone.append((char) ('0' + random.nextInt(10)));
+        }
+        return mutate(random, phone, PHONE_CHARS);
+    }
+
+    private static String mutate(Random random, StringBuilder text, String alphabet) {
+        int edits = random.nextInt(3);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(text.length() + 1);
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            if (random.nextBoolean() || position == text.length()) {
+                text.insert(position, c);
+            } else {
+                text.setCharAt(position, c);
+            }
+        }
+        return text.toString();
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
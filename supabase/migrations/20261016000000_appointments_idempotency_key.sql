@@ -0,0 +1,10 @@
+-- Unique idempotency key for chatbot bookings
+-- The chatbot service creates appointments with a single conditional insert
+-- (POST /appointments?on_conflict=idempotency_key, resolution=ignore-duplicates),
+-- which requires a unique index on the key. NULL keys stay unrestricted.
+
+ALTER TABLE public.appointments
+    ADD COLUMN IF NOT EXISTS idempotency_key TEXT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS appointments_idempotency_key_key
+    ON public.appointments (idempotency_key);
@@ -0,0 +1,13 @@
+-- Index for the chatbot's expired-session sweep
+-- The sweep deletes in chunks with
+--   DELETE ... WHERE ctid IN (SELECT ctid ... WHERE expires_at < now() LIMIT n FOR UPDATE SKIP LOCKED)
+-- which needs an index on expires_at to avoid a sequential scan per chunk.
+-- conversation_states only exists where the chatbot uses the database state store.
+
+DO $$
+BEGIN
+    IF to_regclass('public.conversation_states') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS conversation_states_expires_at_idx
+            ON public.conversation_states (expires_at);
+    END IF;
+END $$;